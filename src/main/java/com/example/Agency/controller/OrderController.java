@@ -1,9 +1,13 @@
 package com.example.Agency.controller;
 
 import com.example.Agency.dto.*;
+import com.example.Agency.dto.response.BatchItemResult;
 import com.example.Agency.dto.reuests.CreateOrderRequest;
 import com.example.Agency.model.Orders;
+import com.example.Agency.service.ExportService;
+import com.example.Agency.service.OrderIngestionService;
 import com.example.Agency.service.OrderService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +15,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
 import static org.springframework.http.ResponseEntity.status;
@@ -25,6 +31,11 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderIngestionService orderIngestionService;
+
+    @Autowired
+    private ExportService exportService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<Orders>> createOrder(@RequestBody CreateOrderRequest request) {
@@ -36,15 +47,33 @@ public class OrderController {
         return status(HttpStatus.CREATED).body(response);
     }
 
+    // Body is a JSON array of CreateOrderRequest; it is read incrementally rather than bound as a whole.
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse<List<BatchItemResult>>> createOrdersBatch(HttpServletRequest request) throws IOException {
+        ApiResponse<List<BatchItemResult>> response = orderIngestionService.ingest(request.getInputStream());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<?>> getAllOrders() {
-        ApiResponse<GetOrdersDto> response = orderService.getAllOrders();
+    public ResponseEntity<ApiResponse<?>> getAllOrders(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        ApiResponse<GetOrdersDto> response = orderService.getAllOrders(cursor, limit);
         return response.isSuccess() ? ResponseEntity.ok(response)
                 : ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
 
     }
 
+    // Full export of every order, streamed from the database as it is read.
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(exportService::exportOrders);
+    }
+
     @GetMapping("/{userId}")
     public ResponseEntity<ApiResponse<?>> getOrdersByUserId(@PathVariable("userId") String userId) {
         ApiResponse<OrderResponseDto> response = orderService.getOrdersByRetailerId(userId);
@@ -57,8 +86,10 @@ public class OrderController {
             @RequestParam(value = "date", required = false) String date,
             @RequestParam(value = "shift", required = false) Boolean shift,
             @RequestParam(value = "startDate", required = false) String startDate,
-            @RequestParam(value = "endDate", required = false) String endDate) {
+            @RequestParam(value = "endDate", required = false) String endDate,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
 
-        return orderService.getAllOrdersByDateRangeOrShift(date, shift, startDate, endDate);
+        return orderService.getAllOrdersByDateRangeOrShift(date, shift, startDate, endDate, cursor, limit);
     }
 }
@@ -0,0 +1,35 @@
+package com.example.Agency.controller;
+
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.response.IntakeTicket;
+import com.example.Agency.dto.reuests.CreateOrderRequest;
+import com.example.Agency.service.OrderIntakeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/orders/intake")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.orders.intake.enabled", havingValue = "true")
+public class OrderIntakeController {
+
+    private final OrderIntakeService orderIntakeService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<IntakeTicket>> submitOrder(@RequestBody CreateOrderRequest request) {
+        IntakeTicket ticket = orderIntakeService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse<>(true, "Order accepted for processing", ticket, null));
+    }
+
+    @GetMapping("/{ticketId}")
+    public ResponseEntity<ApiResponse<IntakeTicket>> getTicket(@PathVariable String ticketId) {
+        return orderIntakeService.getTicket(ticketId)
+                .map(ticket -> ResponseEntity.ok(new ApiResponse<>(true, "Ticket " + ticket.getStatus(), ticket, null)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Ticket not found", null, null)));
+    }
+}
@@ -1,26 +1,41 @@
 package com.example.Agency.controller;
 
 import com.example.Agency.dto.ApiResponse;
-import com.example.Agency.dto.PaymentHistoryDto;
+import com.example.Agency.dto.GetPaymentHistoryDto;
+import com.example.Agency.dto.response.BatchItemResult;
+import com.example.Agency.dto.response.PaymentImportResult;
 import com.example.Agency.dto.reuests.BatchPaymentRequest;
 import com.example.Agency.dto.reuests.PaymentRequest;
 import com.example.Agency.model.Payments;
+import com.example.Agency.service.ExportService;
+import com.example.Agency.service.PaymentImportService;
 import com.example.Agency.service.PaymentService;
 import jakarta.validation.Valid;
 import org.springframework.data.crossstore.ChangeSetPersister;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/payment")
 public class PaymentController {
     private final PaymentService paymentService;
+    private final ExportService exportService;
+    private final PaymentImportService paymentImportService;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, ExportService exportService,
+                             PaymentImportService paymentImportService) {
         this.paymentService = paymentService;
+        this.exportService = exportService;
+        this.paymentImportService = paymentImportService;
     }
 
     @PostMapping
@@ -32,10 +47,22 @@ public class PaymentController {
 
     @PostMapping("/batch")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Payments>>> createBatchPayments(
+    public ResponseEntity<ApiResponse<List<BatchItemResult>>> createBatchPayments(
             @Valid @RequestBody BatchPaymentRequest batchRequest) {
-            List<Payments> payments = paymentService.createBatchPayments(batchRequest);
-            return ResponseEntity.ok(new ApiResponse<>(true,"Payment Success",payments,null));
+            ApiResponse<List<BatchItemResult>> response = paymentService.createBatchPayments(batchRequest);
+            return ResponseEntity.ok(response);
+    }
+
+    // Collection sheet upload (.csv or .xlsx); the rows are parsed as they are read and written in chunks.
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<PaymentImportResult>> importPayments(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "receivedBy", required = false) String receivedBy,
+            @RequestParam(value = "paymentDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate paymentDate)
+            throws IOException {
+        ApiResponse<PaymentImportResult> response = paymentImportService.importSheet(file, receivedBy, paymentDate);
+        return ResponseEntity.ok(response);
     }
 
 //    @PostMapping("/from-advance")
@@ -53,12 +80,32 @@ public class PaymentController {
     }
 
     @GetMapping("/history")
-    public ApiResponse<List<PaymentHistoryDto>> getPaymentHistory() {
-        return paymentService.getPaymentHistory();
+    public ApiResponse<GetPaymentHistoryDto> getPaymentHistory(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "receivedBy", required = false) String receivedBy,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return paymentService.getPaymentHistory(from, to, receivedBy, cursor, limit);
+    }
+
+    // Full payment history, streamed from the database as it is read.
+    @GetMapping(value = "/history/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPaymentHistory() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(exportService::exportPaymentHistory);
     }
 
     @GetMapping("/history/user/{userId}")
-    public ApiResponse<List<PaymentHistoryDto>> getPaymentHistoryByUserId(@PathVariable String userId) {
-        return paymentService.getPaymentHistoryByUserId(userId);
+    public ApiResponse<GetPaymentHistoryDto> getPaymentHistoryByUserId(
+            @PathVariable String userId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "receivedBy", required = false) String receivedBy,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return paymentService.getPaymentHistoryByUserId(userId, from, to, receivedBy, cursor, limit);
     }
 }
\ No newline at end of file
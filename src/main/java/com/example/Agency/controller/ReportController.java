@@ -1,59 +1,192 @@
 package com.example.Agency.controller;
+import com.example.Agency.domain.ReportJobStatus;
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.ReceivablesAgingDto;
+import com.example.Agency.dto.response.ReportJob;
+import com.example.Agency.dto.reuests.ReportJobRequest;
+import com.example.Agency.report.ReportFormat;
+import com.example.Agency.service.ReceivablesAgingService;
+import com.example.Agency.service.ReportCache;
+import com.example.Agency.service.ReportCache.CachedReport;
+import com.example.Agency.service.ReportCache.ReportKey;
+import com.example.Agency.service.ReportJobService;
 import com.example.Agency.service.ReportService;
+import com.example.Agency.service.SalesAggregateService;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/reports")
 public class ReportController {
 
     private final ReportService reportService;
+    private final SalesAggregateService salesAggregateService;
+    private final ReportCache reportCache;
+    private final ReportJobService reportJobService;
+    private final ReceivablesAgingService receivablesAgingService;
 
-    public ReportController(ReportService reportService) {
+    public ReportController(ReportService reportService, SalesAggregateService salesAggregateService,
+                            ReportCache reportCache, ReportJobService reportJobService,
+                            ReceivablesAgingService receivablesAgingService) {
         this.reportService = reportService;
+        this.salesAggregateService = salesAggregateService;
+        this.reportCache = reportCache;
+        this.reportJobService = reportJobService;
+        this.receivablesAgingService = receivablesAgingService;
+    }
+
+    // Outstanding dues per shop by age; asOf defaults to today
+    @GetMapping("/aging")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ReceivablesAgingDto>> getReceivablesAging(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        return ResponseEntity.ok(receivablesAgingService.getAging(asOf));
     }
 
     @GetMapping("/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public void exportReport(
+    public ResponseEntity<Resource> exportReport(
             @RequestParam(required = false) String orderDate,
             @RequestParam(required = false) Boolean shift,
-            HttpServletResponse response) throws IOException {
-
-        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        response.setHeader("Content-Disposition", "attachment; filename=Sales_Report.xlsx");
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws IOException {
 
-        reportService.generateExcelReport(orderDate, shift, response);
+        final ReportFormat reportFormat = ReportFormat.fromParam(format);
+        final CachedReport report = reportCache.get(
+                new ReportKey(ReportService.SALES_SUMMARY, reportFormat, orderDate, shift),
+                out -> reportService.generateSalesSummaryReport(orderDate, shift, reportFormat, out));
+        final String filename = ReportService.fileName(ReportService.SALES_SUMMARY, orderDate, shift, reportFormat);
+        return toResponse(report, filename, reportFormat, ifNoneMatch);
     }
 
 
     @GetMapping("/excel")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<InputStreamResource> downloadExcelReport(
+    public ResponseEntity<Resource> downloadExcelReport(
             @RequestParam boolean shift,
-            @RequestParam String date) throws Exception {
+            @RequestParam String date,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws IOException {
         // Parse the date parameter (assumed to be in ISO format, e.g., "2025-02-18")
         LocalDate reportDate = LocalDate.parse(date);
-        ByteArrayInputStream in = reportService.generateExcelReport(reportDate,shift);
-        String fileName = String.format("sales_report_%s_%s.xlsx", date, shift ? "AM" : "PM");
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Content-Disposition", "attachment; filename=" + fileName);
-
-        return ResponseEntity
-                .ok()
-                .headers(headers)
-                .contentType(MediaType.parseMediaType(
-                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(in));
+        ReportFormat reportFormat = ReportFormat.fromParam(format);
+        String fileName = ReportService.fileName(ReportService.SHOP_SALES, date, shift, reportFormat);
+
+        final CachedReport report = reportCache.get(
+                new ReportKey(ReportService.SHOP_SALES, reportFormat, reportDate.toString(), shift),
+                out -> reportService.generateShopSalesReport(reportDate, shift, reportFormat, out));
+        return toResponse(report, fileName, reportFormat, ifNoneMatch);
+    }
+
+    // Shop sales for a week, month or custom range: a total sheet plus one sheet per day.
+    // Not cached; month-long ranges are better requested as a "range" report job.
+    @GetMapping("/range")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> downloadRangeReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String format) {
+        ReportFormat reportFormat = ReportFormat.fromParam(format);
+        // Checked before the response starts, so a bad range still gets a 400.
+        reportService.checkRange(from, to);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=" + ReportService.rangeFileName(from, to, reportFormat))
+                .contentType(MediaType.parseMediaType(reportFormat.contentType()))
+                .body(out -> reportService.generateShopSalesRangeReport(from, to, reportFormat, out));
+    }
+
+    // Large reports are generated in the background; poll the job and download it once READY.
+    @PostMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ReportJob>> submitReportJob(@RequestBody ReportJobRequest request) {
+        try {
+            ReportJob job = reportJobService.submit(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new ApiResponse<>(true, "Report job accepted", job, null));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(new ApiResponse<>(false, "Too many report jobs queued, try again later", null, null));
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ReportJob>> getReportJob(@PathVariable String jobId) {
+        return reportJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(new ApiResponse<>(true, "Report job " + job.getStatus(), job, null)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Report job not found", null, null)));
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> downloadReportJob(@PathVariable String jobId) throws IOException {
+        Optional<ReportJob> found = reportJobService.getJob(jobId);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Report job not found", null, null));
+        }
+        ReportJob job = found.get();
+        if (job.getStatus() != ReportJobStatus.READY) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse<>(false, "Report job " + job.getStatus(), job, job.getError()));
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + reportJobService.fileName(job))
+                .contentType(MediaType.parseMediaType(job.getFormat().contentType()))
+                .contentLength(job.getSizeBytes())
+                .body(new InputStreamResource(reportJobService.openResult(job)));
+    }
+
+    // Recomputes the daily sales aggregate from the order lines, for backfill or after a failed verify.
+    @PostMapping("/aggregate/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Integer> rebuildAggregate(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return salesAggregateService.rebuild(from, to);
+    }
+
+    @GetMapping("/aggregate/verify")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Long> verifyAggregate(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return salesAggregateService.verify(from, to);
+    }
+
+    // Revalidating clients get a 304 while the report is unchanged; no-cache makes them always ask.
+    private ResponseEntity<Resource> toResponse(CachedReport report, String fileName, ReportFormat format,
+                                                String ifNoneMatch) throws IOException {
+        if (report.matches(ifNoneMatch)) {
+            report.close();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(report.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(report.etag())
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .contentLength(report.size())
+                .body(new InputStreamResource(report.openStream()));
     }
 }
@@ -1,14 +1,19 @@
 package com.example.Agency.controller;
 
 import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.BalanceDto;
+import com.example.Agency.dto.BalanceStatementDto;
 import com.example.Agency.model.User;
+import com.example.Agency.service.BalanceLedgerService;
 import com.example.Agency.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +23,7 @@ import java.util.Optional;
 public class UserController {
 
     private final UserService userService; // Make userService final
+    private final BalanceLedgerService balanceLedgerService;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")  // Restrict to ADMIN role
@@ -53,4 +59,28 @@ public class UserController {
                 ? ResponseEntity.ok(response) // 200 OK
                 : ResponseEntity.status(HttpStatus.NOT_FOUND).body(response); // 404 Not Found
     }
+
+    // Balance at the end of the given day, from the latest ledger snapshot before it plus the entries after
+    @GetMapping("/{userId}/balance")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BalanceDto>> getBalanceAt(
+            @PathVariable String userId,
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        ApiResponse<BalanceDto> response = balanceLedgerService.getBalanceAt(userId, date);
+        return response.isSuccess()
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    @GetMapping("/{userId}/statement")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BalanceStatementDto>> getStatement(
+            @PathVariable String userId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        ApiResponse<BalanceStatementDto> response = balanceLedgerService.getStatement(userId, from, to);
+        return response.isSuccess()
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
 }
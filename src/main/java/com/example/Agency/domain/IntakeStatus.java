@@ -0,0 +1,7 @@
+package com.example.Agency.domain;
+
+public enum IntakeStatus {
+    QUEUED,
+    APPLIED,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package com.example.Agency.domain;
+
+public enum LedgerEntryType {
+    ORDER,
+    PAYMENT,
+    ADVANCE_SETTLEMENT
+}
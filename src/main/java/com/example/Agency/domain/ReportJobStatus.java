@@ -0,0 +1,8 @@
+package com.example.Agency.domain;
+
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    READY,
+    FAILED
+}
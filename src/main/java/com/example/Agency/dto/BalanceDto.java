@@ -0,0 +1,19 @@
+package com.example.Agency.dto;
+
+import com.example.Agency.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceDto {
+    private String userId;
+    // The balance at the end of this day
+    private LocalDate date;
+    private Money dueAmount;
+    private Money advance;
+}
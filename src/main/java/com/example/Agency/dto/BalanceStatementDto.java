@@ -0,0 +1,25 @@
+package com.example.Agency.dto;
+
+import com.example.Agency.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceStatementDto {
+    private String userId;
+    private LocalDate from;
+    private LocalDate to;
+    // Balance at the start of from
+    private Money openingDueAmount;
+    private Money openingAdvance;
+    private List<LedgerEntryDto> entries;
+    // Balance at the end of to
+    private Money closingDueAmount;
+    private Money closingAdvance;
+}
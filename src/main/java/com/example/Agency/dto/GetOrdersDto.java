@@ -1,5 +1,6 @@
 package com.example.Agency.dto;
 
+import com.example.Agency.util.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,7 +12,10 @@ import java.util.List;
 @NoArgsConstructor
 public class GetOrdersDto {
     private List<UserOrderDto> orders;
-    private Double grandTotal;
-    private Double costGrandTotal;
+    // Totals of the orders in this page
+    private Money grandTotal;
+    private Money costGrandTotal;
+    // Pass as the cursor parameter to fetch the next page; null on the last page
+    private String nextCursor;
 }
 
@@ -0,0 +1,16 @@
+package com.example.Agency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GetPaymentHistoryDto {
+    private List<PaymentHistoryDto> payments;
+    // Pass as the cursor parameter to fetch the next page; null on the last page
+    private String nextCursor;
+}
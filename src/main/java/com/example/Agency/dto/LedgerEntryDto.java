@@ -0,0 +1,28 @@
+package com.example.Agency.dto;
+
+import com.example.Agency.domain.LedgerEntryType;
+import com.example.Agency.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LedgerEntryDto {
+    private long entryId;
+    private LedgerEntryType entryType;
+    // The order or payment that caused the change
+    private String referenceId;
+    private LocalDate businessDate;
+    private Money dueDelta;
+    private Money advanceDelta;
+    // When the change was booked; statements and balances follow this order
+    private LocalDateTime recordedAt;
+    // Balance after this entry
+    private Money dueAmount;
+    private Money advance;
+}
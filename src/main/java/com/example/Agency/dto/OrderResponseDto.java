@@ -1,5 +1,6 @@
 package com.example.Agency.dto;
 
+import com.example.Agency.util.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,6 +12,6 @@ import java.util.List;
 @NoArgsConstructor
 public class OrderResponseDto {
     private List<UserOrderInfo> orderDetails;
-    private Double totalAmount;
-    private Double costAmount;
+    private Money totalAmount;
+    private Money costAmount;
 }
@@ -1,5 +1,6 @@
 package com.example.Agency.dto;
 
+import com.example.Agency.util.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,6 +17,6 @@ public class PaymentHistoryDto {
     private String userName;
     private String shopName;
     private LocalDate paymentDate;
-    private double amountPaid;
+    private Money amountPaid;
     private String receivedBy;
 }
@@ -0,0 +1,25 @@
+package com.example.Agency.dto;
+
+import com.example.Agency.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReceivablesAgingDto {
+    // Ages are counted in days up to this date
+    private LocalDate asOf;
+    private Money dueAmount;
+    private Money days0To7;
+    private Money days8To30;
+    private Money days31To60;
+    private Money over60Days;
+    private Money unallocated;
+    // Shops with a due amount, by shop name
+    private List<ShopAgingDto> shops;
+}
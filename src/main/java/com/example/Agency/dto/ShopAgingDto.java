@@ -0,0 +1,26 @@
+package com.example.Agency.dto;
+
+import com.example.Agency.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShopAgingDto {
+    private String userId;
+    private String shopName;
+    private Money dueAmount;
+    // The due amount split by the age of the orders it is still owed on
+    private Money days0To7;
+    private Money days8To30;
+    private Money days31To60;
+    private Money over60Days;
+    // Due not covered by any order, such as a balance carried over from before orders were recorded
+    private Money unallocated;
+    // Date of the oldest order still partly unpaid
+    private LocalDate oldestUnpaidOrderDate;
+}
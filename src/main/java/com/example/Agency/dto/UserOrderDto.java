@@ -1,10 +1,10 @@
 package com.example.Agency.dto;
 
+import com.example.Agency.util.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 @Data
@@ -17,9 +17,9 @@ public class UserOrderDto {
     private String orderDate;
     private String orderTime;
     private List<ProductInfoDto> products;
-    private BigDecimal totalAmount;
+    private Money totalAmount;
     //changes
-    private BigDecimal costAmount;
+    private Money costAmount;
 
     @Data
     @NoArgsConstructor
@@ -27,12 +27,12 @@ public class UserOrderDto {
     public static class ProductInfoDto {
         private String productName;
         private int quantity;
-        private BigDecimal price;
-        private BigDecimal cost;
-        private BigDecimal subtotal;
+        private Money price;
+        private Money cost;
+        private Money subtotal;
 //      private BigDecimal costAmount;
         //changes
-        private BigDecimal costSubtotal;
+        private Money costSubtotal;
 
     }
 }
@@ -1,5 +1,6 @@
 package com.example.Agency.dto;
 
+import com.example.Agency.util.Money;
 import lombok.Data;
 
 @Data
@@ -11,6 +12,6 @@ public class UserOrderInfo {
     private String orderTime;
     private String productName;
     private Integer quantity;
-    private Double subtotal;
-    private Double costSubtotal;
+    private Money subtotal;
+    private Money costSubtotal;
 }
@@ -0,0 +1,23 @@
+package com.example.Agency.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResult {
+    private int index;          // Position of the item in the submitted batch
+    private boolean success;
+    private String referenceId; // Id of the record the item was written to, if any
+    private String error;
+
+    public static BatchItemResult succeeded(int index, String referenceId) {
+        return new BatchItemResult(index, true, referenceId, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, false, null, error);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.Agency.dto.response;
+
+import com.example.Agency.domain.IntakeStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IntakeTicket {
+    private String ticketId;
+    private IntakeStatus status;
+    private String orderId;     // Set once the lines have been written to an order
+    private String error;
+    private Instant acceptedAt;
+    private Instant completedAt;
+}
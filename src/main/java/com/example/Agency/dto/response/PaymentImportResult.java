@@ -0,0 +1,19 @@
+package com.example.Agency.dto.response;
+
+import com.example.Agency.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentImportResult {
+    private int rows;                    // Data rows read, excluding the header
+    private int imported;
+    private int failed;
+    private Money amountImported;
+    private List<BatchItemResult> errors; // Failed rows only; index is the sheet row number
+}
@@ -0,0 +1,27 @@
+package com.example.Agency.dto.response;
+
+import com.example.Agency.domain.ReportJobStatus;
+import com.example.Agency.report.ReportFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJob {
+    private String jobId;
+    private String type;
+    private ReportFormat format;
+    private LocalDate date;
+    private LocalDate toDate;
+    private Boolean shift;
+    private ReportJobStatus status;
+    private Long sizeBytes;     // Set once the report is READY
+    private String error;
+    private Instant submittedAt;
+    private Instant completedAt;
+}
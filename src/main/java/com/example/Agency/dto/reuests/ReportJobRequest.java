@@ -0,0 +1,19 @@
+package com.example.Agency.dto.reuests;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobRequest {
+    // "excel" for the shop-by-product report, "export" for the sales summary, "range" for shop sales from date to toDate
+    private String type;
+    private String format;      // xlsx (default), csv or json
+    private LocalDate date;
+    private LocalDate toDate;   // Last day of a "range" report
+    private Boolean shift;      // Not used by "range" reports, which cover both shifts
+}
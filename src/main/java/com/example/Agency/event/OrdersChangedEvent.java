@@ -0,0 +1,9 @@
+package com.example.Agency.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published by OrderService whenever lines are added to a user's order for a date and shift.
+ */
+public record OrdersChangedEvent(String userId, LocalDate orderDate, boolean orderShift) {
+}
@@ -0,0 +1,9 @@
+package com.example.Agency.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published by PaymentService whenever a payment changes a user's due amount or advance.
+ */
+public record PaymentsChangedEvent(String userId, LocalDate paymentDate) {
+}
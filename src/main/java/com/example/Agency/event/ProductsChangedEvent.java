@@ -0,0 +1,7 @@
+package com.example.Agency.event;
+
+/**
+ * Published by ProductService whenever a product is created, updated or deleted.
+ */
+public record ProductsChangedEvent(String productId) {
+}
@@ -0,0 +1,9 @@
+package com.example.Agency.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published by SalesAggregateService after daily_product_sales is recomputed; null bounds mean unbounded.
+ */
+public record SalesAggregateRebuiltEvent(LocalDate from, LocalDate to) {
+}
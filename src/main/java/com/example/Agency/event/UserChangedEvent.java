@@ -0,0 +1,7 @@
+package com.example.Agency.event;
+
+/**
+ * Published by AuthService and UserService whenever a user is created, updated or deleted.
+ */
+public record UserChangedEvent(String userId, String mobileNumber) {
+}
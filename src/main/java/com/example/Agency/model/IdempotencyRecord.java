@@ -0,0 +1,38 @@
+package com.example.Agency.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Response stored for a POST that carried an Idempotency-Key, replayed when the request is retried.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyRecord {
+    @Id
+    @Column(length = 64)
+    private String recordKey; // SHA-256 of caller, method, path and the client's key
+
+    @Column(nullable = false)
+    private String requestPath;
+
+    @Column(length = 64)
+    private String requestHash; // SHA-256 of the request body, to reject the key's reuse for another request
+
+    @Column(nullable = false)
+    private int status;
+
+    private String contentType;
+
+    @Column(columnDefinition = "mediumblob")
+    private byte[] body;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
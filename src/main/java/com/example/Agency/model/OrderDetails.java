@@ -1,5 +1,6 @@
 package com.example.Agency.model;
 
+import com.example.Agency.util.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -31,10 +32,10 @@ public class OrderDetails {
     @Column(nullable = false)
     private int quantity;
 
-    private Double price;
-    private Double cost;
-    private Double subtotal;
-    private Double costSubtotal;
+    private Money price;
+    private Money cost;
+    private Money subtotal;
+    private Money costSubtotal;
 }
 
 
@@ -1,5 +1,6 @@
 package com.example.Agency.model;
 
+import com.example.Agency.util.Money;
 import com.example.Agency.util.UserIdSerializer;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
@@ -31,11 +32,14 @@ public class Orders {
     private LocalTime orderTime;
 
     @Column(nullable = false)
-    private Double totalAmount;
+    private Money totalAmount;
 
     @Column(nullable = false)
     private Boolean orderShift;
 
     @Column(nullable = false)
-    private Double costAmount;
+    private Money costAmount;
+
+    // Version of the product catalog snapshot that priced the latest lines of this order
+    private Long catalogVersion;
 }
@@ -1,10 +1,10 @@
 package com.example.Agency.model;
 
 
+import com.example.Agency.util.Money;
 import com.example.Agency.util.UserIdSerializer;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.DecimalMin;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -35,8 +35,7 @@ public class Payments {
     private LocalDate paymentDate;
 
     @Column(nullable = false)
-    @DecimalMin(value = "0.0", inclusive = true)
-    private Double amountPaid;
+    private Money amountPaid;
 
     @Column(name = "recived_by")
     private String receivedBy;
@@ -1,8 +1,9 @@
 package com.example.Agency.model;
 
 import com.example.Agency.domain.UserRole;
+import com.example.Agency.util.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.DecimalMin;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -31,14 +32,19 @@ public class User {
     @Column(nullable = false)
     private String passwordHash;
 
-    @DecimalMin(value = "0.0", inclusive = true)
-    private Double dueAmount = 0.0;
+    // Never negative: only changed through the guarded updates in UserRepository
+    private Money dueAmount = Money.ZERO;
 
-    @DecimalMin(value = "0.0", inclusive = true)
-    private Double advance = 0.0;
+    private Money advance = Money.ZERO;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private UserRole role;
 
+    // Bumped by every balance update (see UserRepository), so a stale entity can never overwrite a balance
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.example.Agency.report;
+
+import com.example.Agency.repository.row.SalesSummaryRow;
+import com.example.Agency.util.Money;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Renders reports as RFC 4180 CSV: one header line and one line per data row.
+ * <p>
+ * Titles and total rows are left out so the files load straight into scripts and spreadsheets;
+ * amounts are plain decimals with two places.
+ */
+@Component
+public class CsvReportRenderer implements ReportRenderer {
+
+    @Override
+    public ReportFormat format() {
+        return ReportFormat.CSV;
+    }
+
+    @Override
+    public void renderSalesSummary(final SalesSummary summary, final OutputStream out) throws IOException {
+        final Writer writer = open(out);
+        writer.write("Date,Shift,Product Name,Quantity,Total Amount,Total Cost\r\n");
+        for (final SalesSummaryRow row : summary.rows()) {
+            field(writer, row.orderDate());
+            writer.write(',');
+            writer.write(row.morningShift() ? "Morning" : "Evening");
+            writer.write(',');
+            field(writer, row.productName());
+            writer.write(',');
+            writer.write(Long.toString(row.quantity()));
+            writer.write(',');
+            writer.write(Money.ofMinor(row.totalAmountMinor()).toString());
+            writer.write(',');
+            writer.write(Money.ofMinor(row.totalCostMinor()).toString());
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void renderShopProductSales(final LocalDate orderDate, final boolean shift, final ShopProductPivot pivot,
+                                       final OutputStream out) throws IOException {
+        final Writer writer = open(out);
+        final int productCount = pivot.productCount();
+        writer.write("Shop Name");
+        for (int product = 0; product < productCount; product++) {
+            writer.write(',');
+            field(writer, pivot.productName(product));
+        }
+        writer.write(",Total Amount,Due Amount\r\n");
+
+        for (int shop = 0; shop < pivot.shopCount(); shop++) {
+            field(writer, pivot.shopName(shop));
+            for (int product = 0; product < productCount; product++) {
+                writer.write(',');
+                writer.write(Long.toString(pivot.quantity(shop, product)));
+            }
+            writer.write(',');
+            writer.write(Money.ofMinor(pivot.shopAmountMinor(shop)).toString());
+            writer.write(',');
+            writer.write(Money.ofMinor(pivot.shopDueMinor(shop)).toString());
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes one line per day and shop with a leading Date column; the total is left to the consumer.
+     */
+    @Override
+    public void renderShopProductRange(final LocalDate from, final LocalDate to,
+                                       final SortedMap<LocalDate, ShopProductPivot> days, final ShopProductPivot total,
+                                       final OutputStream out) throws IOException {
+        final Writer writer = open(out);
+        // The merged pivot knows every product of the range, so it fixes the column order.
+        final int productCount = total.productCount();
+        final Map<String, Integer> column = new HashMap<>();
+        writer.write("Date,Shop Name");
+        for (int product = 0; product < productCount; product++) {
+            column.put(total.productName(product), product);
+            writer.write(',');
+            field(writer, total.productName(product));
+        }
+        writer.write(",Total Amount\r\n");
+
+        final long[] line = new long[productCount];
+        for (final Map.Entry<LocalDate, ShopProductPivot> day : days.entrySet()) {
+            final ShopProductPivot pivot = day.getValue();
+            final int[] columnOf = new int[pivot.productCount()];
+            for (int product = 0; product < columnOf.length; product++) {
+                columnOf[product] = column.get(pivot.productName(product));
+            }
+            for (int shop = 0; shop < pivot.shopCount(); shop++) {
+                Arrays.fill(line, 0L);
+                for (int product = 0; product < columnOf.length; product++) {
+                    line[columnOf[product]] = pivot.quantity(shop, product);
+                }
+                writer.write(day.getKey().toString());
+                writer.write(',');
+                field(writer, pivot.shopName(shop));
+                for (final long quantity : line) {
+                    writer.write(',');
+                    writer.write(Long.toString(quantity));
+                }
+                writer.write(',');
+                writer.write(Money.ofMinor(pivot.shopAmountMinor(shop)).toString());
+                writer.write("\r\n");
+            }
+        }
+        writer.flush();
+    }
+
+    // Not closed: closing would close the caller's stream.
+    private static Writer open(final OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private static void field(final Writer writer, final String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
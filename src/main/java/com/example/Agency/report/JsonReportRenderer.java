@@ -0,0 +1,146 @@
+package com.example.Agency.report;
+
+import com.example.Agency.repository.row.SalesSummaryRow;
+import com.example.Agency.util.Money;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Renders reports as JSON in the usual ApiResponse envelope, written token by token with a JsonGenerator.
+ * Quantities per shop list only the products the shop bought.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonReportRenderer implements ReportRenderer {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public ReportFormat format() {
+        return ReportFormat.JSON;
+    }
+
+    @Override
+    public void renderSalesSummary(final SalesSummary summary, final OutputStream out) throws IOException {
+        try (JsonGenerator json = openEnvelope(out, "Sales summary generated successfully")) {
+            json.writeStartObject();
+            json.writeStringField("orderDate", summary.orderDate());
+            writeShift(json, summary.shift());
+            json.writeArrayFieldStart("rows");
+            for (final SalesSummaryRow row : summary.rows()) {
+                json.writeStartObject();
+                json.writeStringField("orderDate", row.orderDate());
+                json.writeStringField("shift", row.morningShift() ? "Morning" : "Evening");
+                json.writeStringField("productName", row.productName());
+                json.writeNumberField("quantity", row.quantity());
+                json.writeNumberField("totalAmount", Money.ofMinor(row.totalAmountMinor()).toBigDecimal());
+                json.writeNumberField("totalCost", Money.ofMinor(row.totalCostMinor()).toBigDecimal());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeNumberField("netTotalAmount", Money.ofMinor(summary.netTotalAmountMinor()).toBigDecimal());
+            json.writeNumberField("netCostAmount", Money.ofMinor(summary.netCostAmountMinor()).toBigDecimal());
+            json.writeEndObject();
+            closeEnvelope(json);
+        }
+    }
+
+    @Override
+    public void renderShopProductSales(final LocalDate orderDate, final boolean shift, final ShopProductPivot pivot,
+                                       final OutputStream out) throws IOException {
+        try (JsonGenerator json = openEnvelope(out, "Shop sales report generated successfully")) {
+            json.writeStartObject();
+            json.writeStringField("orderDate", orderDate.toString());
+            writeShift(json, shift);
+            writePivotFields(json, pivot);
+            json.writeEndObject();
+            closeEnvelope(json);
+        }
+    }
+
+    @Override
+    public void renderShopProductRange(final LocalDate from, final LocalDate to,
+                                       final SortedMap<LocalDate, ShopProductPivot> days, final ShopProductPivot total,
+                                       final OutputStream out) throws IOException {
+        try (JsonGenerator json = openEnvelope(out, "Shop sales range report generated successfully")) {
+            json.writeStartObject();
+            json.writeStringField("from", from.toString());
+            json.writeStringField("to", to.toString());
+            json.writeArrayFieldStart("days");
+            for (final Map.Entry<LocalDate, ShopProductPivot> day : days.entrySet()) {
+                json.writeStartObject();
+                json.writeStringField("orderDate", day.getKey().toString());
+                writePivotFields(json, day.getValue());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("total");
+            writePivotFields(json, total);
+            json.writeEndObject();
+            json.writeEndObject();
+            closeEnvelope(json);
+        }
+    }
+
+    private static void writePivotFields(final JsonGenerator json, final ShopProductPivot pivot) throws IOException {
+        final int productCount = pivot.productCount();
+        json.writeArrayFieldStart("shops");
+        for (int shop = 0; shop < pivot.shopCount(); shop++) {
+            json.writeStartObject();
+            json.writeStringField("userId", pivot.userId(shop));
+            json.writeStringField("shopName", pivot.shopName(shop));
+            json.writeObjectFieldStart("quantities");
+            for (int product = 0; product < productCount; product++) {
+                final long quantity = pivot.quantity(shop, product);
+                if (quantity != 0L) {
+                    json.writeNumberField(pivot.productName(product), quantity);
+                }
+            }
+            json.writeEndObject();
+            json.writeNumberField("totalAmount", Money.ofMinor(pivot.shopAmountMinor(shop)).toBigDecimal());
+            json.writeNumberField("dueAmount", Money.ofMinor(pivot.shopDueMinor(shop)).toBigDecimal());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+
+        json.writeObjectFieldStart("productTotals");
+        for (int product = 0; product < productCount; product++) {
+            json.writeNumberField(pivot.productName(product), pivot.productQuantityTotal(product));
+        }
+        json.writeEndObject();
+        json.writeNumberField("totalAmount", Money.ofMinor(pivot.totalAmountMinor()).toBigDecimal());
+        json.writeNumberField("totalDue", Money.ofMinor(pivot.totalDueMinor()).toBigDecimal());
+        json.writeNumberField("totalCost", Money.ofMinor(pivot.totalCostMinor()).toBigDecimal());
+    }
+
+    private static void writeShift(final JsonGenerator json, final Boolean shift) throws IOException {
+        if (shift == null) {
+            json.writeNullField("shift");
+        } else {
+            json.writeStringField("shift", shift ? "Morning" : "Evening");
+        }
+    }
+
+    private JsonGenerator openEnvelope(final OutputStream out, final String message) throws IOException {
+        final JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartObject();
+        json.writeBooleanField("success", true);
+        json.writeStringField("message", message);
+        json.writeFieldName("data");
+        return json;
+    }
+
+    private void closeEnvelope(final JsonGenerator json) throws IOException {
+        json.writeNullField("error");
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.Agency.report;
+
+import java.util.Locale;
+
+/**
+ * Output formats a report can be rendered in.
+ */
+public enum ReportFormat {
+    XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx"),
+    CSV("text/csv; charset=UTF-8", "csv"),
+    JSON("application/json", "json");
+
+    private final String contentType;
+    private final String extension;
+
+    ReportFormat(final String contentType, final String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Parses a format request parameter, case-insensitively; null or blank means XLSX.
+     *
+     * @throws IllegalArgumentException if the value names no format
+     */
+    public static ReportFormat fromParam(final String value) {
+        if (value == null || value.isBlank()) {
+            return XLSX;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown report format: " + value);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.Agency.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.SortedMap;
+
+/**
+ * Writes aggregated report data in one output format.
+ * <p>
+ * The aggregation is done once, by ReportService, and handed to the renderer for the requested format;
+ * a new layout needs a new render method here, not a new query. Renderers write to the stream as they go
+ * and do not close it.
+ */
+public interface ReportRenderer {
+
+    ReportFormat format();
+
+    /**
+     * Renders product sales per date and shift.
+     */
+    void renderSalesSummary(SalesSummary summary, OutputStream out) throws IOException;
+
+    /**
+     * Renders the shop × product quantities for one date and shift.
+     */
+    void renderShopProductSales(LocalDate orderDate, boolean shift, ShopProductPivot pivot, OutputStream out) throws IOException;
+
+    /**
+     * Renders the shop × product quantities of a date range: each day with both shifts, and the range total.
+     *
+     * @param days  the days that had sales, in date order
+     * @param total the days merged
+     */
+    void renderShopProductRange(LocalDate from, LocalDate to, SortedMap<LocalDate, ShopProductPivot> days,
+                                ShopProductPivot total, OutputStream out) throws IOException;
+}
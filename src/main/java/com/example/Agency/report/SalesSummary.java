@@ -0,0 +1,25 @@
+package com.example.Agency.report;
+
+import com.example.Agency.repository.row.SalesSummaryRow;
+
+import java.util.List;
+
+/**
+ * Product sales per date and shift, with the net totals accumulated in the same pass. Amounts are in paise.
+ *
+ * @param orderDate the requested order date as given, or null for all dates
+ * @param shift     the requested shift, or null for both
+ */
+public record SalesSummary(String orderDate, Boolean shift, List<SalesSummaryRow> rows,
+                           long netTotalAmountMinor, long netCostAmountMinor) {
+
+    public static SalesSummary of(final String orderDate, final Boolean shift, final List<SalesSummaryRow> rows) {
+        long totalAmount = 0L;
+        long totalCost = 0L;
+        for (final SalesSummaryRow row : rows) {
+            totalAmount += row.totalAmountMinor();
+            totalCost += row.totalCostMinor();
+        }
+        return new SalesSummary(orderDate, shift, rows, totalAmount, totalCost);
+    }
+}
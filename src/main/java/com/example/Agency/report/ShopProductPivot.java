@@ -0,0 +1,213 @@
+package com.example.Agency.report;
+
+import com.example.Agency.repository.row.ShopProductSalesRow;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Quantities sold per shop and product, laid out as a dense shop × product matrix of primitives.
+ * <p>
+ * Shops and products are interned to indexes in the order they first appear in the rows, which the
+ * report query sorts by shop name, so row and column order is deterministic. Row totals (amount, cost,
+ * due) and column totals (quantity) are accumulated while the matrix is filled. Amounts are in paise.
+ */
+public final class ShopProductPivot {
+
+    private final List<String> productNames;
+    private final List<String> shopNames;
+    private final List<String> userIds;
+    // Row-major: the quantity of product p for shop s is at s * productCount + p.
+    private final long[] quantities;
+    private final long[] shopAmountMinor;
+    private final long[] shopCostMinor;
+    private final long[] shopDueMinor;
+    private final long[] productQuantityTotals;
+    private long totalAmountMinor;
+    private long totalCostMinor;
+    private long totalDueMinor;
+
+    private ShopProductPivot(final List<String> productNames, final List<String> shopNames, final List<String> userIds) {
+        this.productNames = productNames;
+        this.shopNames = shopNames;
+        this.userIds = userIds;
+        this.quantities = new long[shopNames.size() * productNames.size()];
+        this.shopAmountMinor = new long[shopNames.size()];
+        this.shopCostMinor = new long[shopNames.size()];
+        this.shopDueMinor = new long[shopNames.size()];
+        this.productQuantityTotals = new long[productNames.size()];
+    }
+
+    /**
+     * Builds the pivot from per shop and product rows. Each shop is one user; its due amount is taken once.
+     */
+    public static ShopProductPivot of(final List<ShopProductSalesRow> rows) {
+        final Map<String, Integer> productIndex = new HashMap<>();
+        final Map<String, Integer> shopIndex = new HashMap<>();
+        final List<String> productNames = new ArrayList<>();
+        final List<String> shopNames = new ArrayList<>();
+        final List<String> userIds = new ArrayList<>();
+        final int[] productOf = new int[rows.size()];
+        final int[] shopOf = new int[rows.size()];
+
+        // First pass interns the names so the matrix can be allocated at its final size.
+        for (int i = 0; i < rows.size(); i++) {
+            final ShopProductSalesRow row = rows.get(i);
+            productOf[i] = productIndex.computeIfAbsent(row.productName(), name -> {
+                productNames.add(name);
+                return productNames.size() - 1;
+            });
+            shopOf[i] = shopIndex.computeIfAbsent(row.userId(), userId -> {
+                userIds.add(userId);
+                shopNames.add(row.shopName());
+                return userIds.size() - 1;
+            });
+        }
+
+        final ShopProductPivot pivot = new ShopProductPivot(productNames, shopNames, userIds);
+        final int productCount = productNames.size();
+        final boolean[] dueCounted = new boolean[shopNames.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            final ShopProductSalesRow row = rows.get(i);
+            final int shop = shopOf[i];
+            final int product = productOf[i];
+            pivot.quantities[shop * productCount + product] += row.quantity();
+            pivot.productQuantityTotals[product] += row.quantity();
+            pivot.shopAmountMinor[shop] += row.totalAmountMinor();
+            pivot.shopCostMinor[shop] += row.totalCostMinor();
+            pivot.totalAmountMinor += row.totalAmountMinor();
+            pivot.totalCostMinor += row.totalCostMinor();
+            if (!dueCounted[shop]) {
+                dueCounted[shop] = true;
+                pivot.shopDueMinor[shop] = row.dueAmountMinor();
+                pivot.totalDueMinor += row.dueAmountMinor();
+            }
+        }
+        return pivot;
+    }
+
+    /**
+     * Adds up pivots of separate periods. Products keep the order in which they first appear; shops are
+     * sorted by name. A shop's due amount is its current balance, so it is taken once, not summed.
+     */
+    public static ShopProductPivot merge(final List<ShopProductPivot> parts) {
+        final Map<String, Integer> productIndex = new HashMap<>();
+        final List<String> productNames = new ArrayList<>();
+        final Map<String, String> shopNameByUser = new HashMap<>();
+        for (final ShopProductPivot part : parts) {
+            for (final String name : part.productNames) {
+                productIndex.computeIfAbsent(name, n -> {
+                    productNames.add(n);
+                    return productNames.size() - 1;
+                });
+            }
+            for (int shop = 0; shop < part.shopCount(); shop++) {
+                shopNameByUser.putIfAbsent(part.userIds.get(shop), part.shopNames.get(shop));
+            }
+        }
+
+        final List<String> userIds = new ArrayList<>(shopNameByUser.keySet());
+        userIds.sort(Comparator.comparing((String userId) -> shopNameByUser.get(userId),
+                Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(Comparator.naturalOrder()));
+        final Map<String, Integer> shopIndex = new HashMap<>();
+        final List<String> shopNames = new ArrayList<>(userIds.size());
+        for (final String userId : userIds) {
+            shopIndex.put(userId, shopNames.size());
+            shopNames.add(shopNameByUser.get(userId));
+        }
+
+        final ShopProductPivot merged = new ShopProductPivot(productNames, shopNames, userIds);
+        final int productCount = productNames.size();
+        final boolean[] dueCounted = new boolean[shopNames.size()];
+        for (final ShopProductPivot part : parts) {
+            // Maps the part's product indexes to the merged ones once, not per cell.
+            final int[] productMap = new int[part.productCount()];
+            for (int product = 0; product < productMap.length; product++) {
+                productMap[product] = productIndex.get(part.productNames.get(product));
+                merged.productQuantityTotals[productMap[product]] += part.productQuantityTotals[product];
+            }
+            for (int shop = 0; shop < part.shopCount(); shop++) {
+                final int target = shopIndex.get(part.userIds.get(shop));
+                final int sourceRow = shop * productMap.length;
+                final int targetRow = target * productCount;
+                for (int product = 0; product < productMap.length; product++) {
+                    merged.quantities[targetRow + productMap[product]] += part.quantities[sourceRow + product];
+                }
+                merged.shopAmountMinor[target] += part.shopAmountMinor[shop];
+                merged.shopCostMinor[target] += part.shopCostMinor[shop];
+                if (!dueCounted[target]) {
+                    dueCounted[target] = true;
+                    merged.shopDueMinor[target] = part.shopDueMinor[shop];
+                    merged.totalDueMinor += part.shopDueMinor[shop];
+                }
+            }
+            merged.totalAmountMinor += part.totalAmountMinor;
+            merged.totalCostMinor += part.totalCostMinor;
+        }
+        return merged;
+    }
+
+    public int productCount() {
+        return productNames.size();
+    }
+
+    public String productName(final int product) {
+        return productNames.get(product);
+    }
+
+    public List<String> productNames() {
+        return List.copyOf(productNames);
+    }
+
+    public int shopCount() {
+        return shopNames.size();
+    }
+
+    public String shopName(final int shop) {
+        return shopNames.get(shop);
+    }
+
+    public String userId(final int shop) {
+        return userIds.get(shop);
+    }
+
+    public Set<String> userIds() {
+        return Set.copyOf(userIds);
+    }
+
+    public long quantity(final int shop, final int product) {
+        return quantities[shop * productNames.size() + product];
+    }
+
+    public long shopAmountMinor(final int shop) {
+        return shopAmountMinor[shop];
+    }
+
+    public long shopCostMinor(final int shop) {
+        return shopCostMinor[shop];
+    }
+
+    public long shopDueMinor(final int shop) {
+        return shopDueMinor[shop];
+    }
+
+    public long productQuantityTotal(final int product) {
+        return productQuantityTotals[product];
+    }
+
+    public long totalAmountMinor() {
+        return totalAmountMinor;
+    }
+
+    public long totalCostMinor() {
+        return totalCostMinor;
+    }
+
+    public long totalDueMinor() {
+        return totalDueMinor;
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.Agency.report;
+
+import com.example.Agency.repository.row.SalesSummaryRow;
+import com.example.Agency.util.ColumnWidthEstimator;
+import com.example.Agency.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Renders reports as styled Excel workbooks, with titles, totals and estimated column widths.
+ * Range reports get a Total sheet followed by one sheet per day.
+ */
+@Slf4j
+@Component
+public class XlsxReportRenderer implements ReportRenderer {
+
+    // Rows kept in memory per sheet before older ones are flushed to the temporary file
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    @Override
+    public ReportFormat format() {
+        return ReportFormat.XLSX;
+    }
+
+    @Override
+    public void renderSalesSummary(final SalesSummary summary, final OutputStream out) throws IOException {
+        final SXSSFWorkbook workbook = createStreamingWorkbook();
+        try {
+            final Sheet sheet = workbook.createSheet("Sales Report");
+            final String[] headers = {"Date", "Shift", "Product Name", "Quantity", "Total Amount", "Total Cost"};
+            final ColumnWidthEstimator widths = new ColumnWidthEstimator(headers.length);
+
+            // Create cell styles
+            final CellStyle boldStyle = createBoldCellStyle(workbook);
+
+            // Supplier's Shop Name Header (merged A1 to F1)
+            final Row shopNameRow = sheet.createRow(0);
+            final Cell shopNameCell = shopNameRow.createCell(0);
+            shopNameCell.setCellValue("Supplier: XYZ Supplier Shop");
+            shopNameCell.setCellStyle(boldStyle);
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
+
+            // Date and Shift Header
+            final Row dateShiftRow = sheet.createRow(1);
+            dateShiftRow.createCell(0).setCellValue("Date: " + summary.orderDate());
+            dateShiftRow.createCell(1).setCellValue("Shift: " + (summary.shift() ? "AM" : "PM"));
+
+            // Column Headers (starting Row 4)
+            final Row headerRow = sheet.createRow(3);
+            for (int i = 0; i < headers.length; i++) {
+                final Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(boldStyle);
+                widths.boldText(i, headers[i]);
+            }
+
+            // Data Rows (starting Row 5)
+            int rowNum = 4;
+            final long netTotalAmount = summary.netTotalAmountMinor();
+            final long netCostAmount = summary.netCostAmountMinor();
+
+            for (final SalesSummaryRow row : summary.rows()) {
+                final Row dataRow = sheet.createRow(rowNum++);
+                final String shiftName = row.morningShift() ? "Morning" : "Evening";
+                dataRow.createCell(0).setCellValue(row.orderDate());
+                dataRow.createCell(1).setCellValue(shiftName);
+                dataRow.createCell(2).setCellValue(row.productName());
+                dataRow.createCell(3).setCellValue(row.quantity());
+
+                final long totalAmount = row.totalAmountMinor();
+                final long totalCost = row.totalCostMinor();
+
+                dataRow.createCell(4).setCellValue(Money.toDouble(totalAmount));
+                dataRow.createCell(5).setCellValue(Money.toDouble(totalCost));
+
+                widths.text(0, row.orderDate());
+                widths.text(1, shiftName);
+                widths.text(2, row.productName());
+                widths.integer(3, row.quantity());
+                widths.amount(4, totalAmount);
+                widths.amount(5, totalCost);
+            }
+
+            // Net Totals Rows
+            final Row totalRow = sheet.createRow(rowNum++);
+            totalRow.createCell(3).setCellValue("Net Total Amount:");
+            totalRow.createCell(4).setCellValue(Money.toDouble(netTotalAmount));
+
+            final Row costRow = sheet.createRow(rowNum);
+            costRow.createCell(3).setCellValue("Net Cost Amount:");
+            costRow.createCell(5).setCellValue(Money.toDouble(netCostAmount));
+
+            widths.text(3, "Net Total Amount:");
+            widths.amount(4, netTotalAmount);
+            widths.amount(5, netCostAmount);
+            widths.applyTo(sheet);
+
+            workbook.write(out);
+            out.flush();
+        } finally {
+            disposeQuietly(workbook);
+        }
+    }
+
+    @Override
+    public void renderShopProductSales(final LocalDate orderDate, final boolean shift, final ShopProductPivot pivot,
+                                       final OutputStream out) throws IOException {
+        final SXSSFWorkbook workbook = createStreamingWorkbook();
+        try {
+            final String titleText = String.format("Rajdeep sales - Date: %s - Shift: %s", orderDate, shift ? "AM" : "PM");
+            writePivotSheet(workbook, PivotStyles.create(workbook), "sales_report", titleText, pivot);
+            workbook.write(out);
+            out.flush();
+        } finally {
+            disposeQuietly(workbook);
+        }
+    }
+
+    @Override
+    public void renderShopProductRange(final LocalDate from, final LocalDate to,
+                                       final SortedMap<LocalDate, ShopProductPivot> days, final ShopProductPivot total,
+                                       final OutputStream out) throws IOException {
+        final SXSSFWorkbook workbook = createStreamingWorkbook();
+        try {
+            final PivotStyles styles = PivotStyles.create(workbook);
+            writePivotSheet(workbook, styles, "Total",
+                    String.format("Rajdeep sales - %s to %s", from, to), total);
+            for (final Map.Entry<LocalDate, ShopProductPivot> day : days.entrySet()) {
+                writePivotSheet(workbook, styles, day.getKey().toString(),
+                        String.format("Rajdeep sales - Date: %s", day.getKey()), day.getValue());
+            }
+            workbook.write(out);
+            out.flush();
+        } finally {
+            disposeQuietly(workbook);
+        }
+    }
+
+    /**
+     * Writes a shop × product sheet with a title, a totals row and the cost and profit lines.
+     */
+    private void writePivotSheet(final SXSSFWorkbook workbook, final PivotStyles styles, final String sheetName,
+                                 final String titleText, final ShopProductPivot pivot) {
+        final int productCount = pivot.productCount();
+        final Sheet sheet = workbook.createSheet(sheetName);
+        final int totalColumns = 1 + productCount + 3;
+        final ColumnWidthEstimator widths = new ColumnWidthEstimator(totalColumns);
+        int rowNum = 0;
+
+        // Title Row
+        final Row titleRow = sheet.createRow(rowNum++);
+        final Cell titleCell = titleRow.createCell(0);
+        titleCell.setCellValue(titleText);
+        titleCell.setCellStyle(styles.title());
+        sheet.addMergedRegion(new CellRangeAddress(titleRow.getRowNum(), titleRow.getRowNum(), 0, totalColumns - 1));
+
+        // Blank row for spacing
+        rowNum++;
+
+        // Header Row
+        final CellStyle headerCellStyle = styles.header();
+        final Row headerRow = sheet.createRow(rowNum++);
+        int colNum = 0;
+        Cell cell = headerRow.createCell(colNum++);
+        cell.setCellValue("Shop Name");
+        cell.setCellStyle(headerCellStyle);
+
+        for (int product = 0; product < productCount; product++) {
+            cell = headerRow.createCell(colNum++);
+            cell.setCellValue(pivot.productName(product));
+            cell.setCellStyle(headerCellStyle);
+        }
+        cell = headerRow.createCell(colNum++);
+        cell.setCellValue("Total Amount");
+        cell.setCellStyle(headerCellStyle);
+        cell = headerRow.createCell(colNum++);
+        cell.setCellValue("Due Amount");
+        cell.setCellStyle(headerCellStyle);
+        cell = headerRow.createCell(colNum++);
+        cell.setCellValue("Amount Paid");
+        cell.setCellStyle(headerCellStyle);
+
+        for (int i = 0; i < headerRow.getLastCellNum(); i++) {
+            widths.boldText(i, headerRow.getCell(i).getStringCellValue());
+        }
+
+        final CellStyle dataCellStyle = styles.data();
+        final CellStyle numericCellStyle = styles.numeric();
+        final CellStyle integerCellStyle = styles.integer();
+        final CellStyle summaryCellStyle = styles.summary();
+
+        final long overallTotalAmount = pivot.totalAmountMinor();
+        final long overallTotalDue = pivot.totalDueMinor();
+        final long overallTotalCost = pivot.totalCostMinor();
+
+        // Data Rows
+        for (int shop = 0; shop < pivot.shopCount(); shop++) {
+            final Row dataRow = sheet.createRow(rowNum++);
+            colNum = 0;
+            cell = dataRow.createCell(colNum++);
+            cell.setCellValue(pivot.shopName(shop));
+            cell.setCellStyle(dataCellStyle);
+            widths.text(0, pivot.shopName(shop));
+
+            for (int product = 0; product < productCount; product++) {
+                final long quantity = pivot.quantity(shop, product);
+                widths.integer(colNum, quantity);
+                cell = dataRow.createCell(colNum++);
+                cell.setCellValue(quantity);
+                cell.setCellStyle(integerCellStyle);
+            }
+
+            widths.amount(colNum, pivot.shopAmountMinor(shop));
+            cell = dataRow.createCell(colNum++);
+            cell.setCellValue(Money.toDouble(pivot.shopAmountMinor(shop)));
+            cell.setCellStyle(numericCellStyle);
+
+            widths.amount(colNum, pivot.shopDueMinor(shop));
+            cell = dataRow.createCell(colNum++);
+            cell.setCellValue(Money.toDouble(pivot.shopDueMinor(shop)));
+            cell.setCellStyle(numericCellStyle);
+
+            cell = dataRow.createCell(colNum++);
+            cell.setCellValue(""); // Amount Paid remains empty
+            cell.setCellStyle(dataCellStyle);
+        }
+
+        // Blank row for spacing before summary
+        rowNum++;
+
+        // Summary Row (Totals)
+        final Row summaryRow = sheet.createRow(rowNum++);
+        colNum = 0;
+        cell = summaryRow.createCell(colNum++);
+        cell.setCellValue("Total");
+        cell.setCellStyle(summaryCellStyle);
+
+        for (int product = 0; product < productCount; product++) {
+            final long quantity = pivot.productQuantityTotal(product);
+            widths.integer(colNum, quantity);
+            cell = summaryRow.createCell(colNum++);
+            cell.setCellValue(quantity);
+            cell.setCellStyle(summaryCellStyle);
+        }
+        widths.amount(colNum, overallTotalAmount);
+        cell = summaryRow.createCell(colNum++);
+        cell.setCellValue(Money.toDouble(overallTotalAmount));
+        cell.setCellStyle(summaryCellStyle);
+        widths.amount(colNum, overallTotalDue);
+        cell = summaryRow.createCell(colNum++);
+        cell.setCellValue(Money.toDouble(overallTotalDue));
+        cell.setCellStyle(summaryCellStyle);
+        cell = summaryRow.createCell(colNum++);
+        cell.setCellValue("");
+        cell.setCellStyle(summaryCellStyle);
+
+        // Extra spacing rows before cost and profit rows
+        rowNum += 2;
+        final int totalAmountColIndex = 1 + productCount;
+
+        // Total Cost Amount Row
+        final Row costRow = sheet.createRow(rowNum++);
+        cell = costRow.createCell(totalAmountColIndex);
+        cell.setCellValue("Total Cost Amount");
+        cell.setCellStyle(summaryCellStyle);
+        cell = costRow.createCell(totalAmountColIndex + 1);
+        cell.setCellValue(Money.toDouble(overallTotalCost));
+        cell.setCellStyle(numericCellStyle);
+
+        // Net Profit Row
+        final String profitLabel = "Net Profit (Revenue - Cost)";
+        final Row profitRow = sheet.createRow(rowNum++);
+        cell = profitRow.createCell(totalAmountColIndex);
+        cell.setCellValue(profitLabel);
+        cell.setCellStyle(summaryCellStyle);
+        cell = profitRow.createCell(totalAmountColIndex + 1);
+        cell.setCellValue(Money.toDouble(overallTotalAmount - overallTotalCost));
+        cell.setCellStyle(numericCellStyle);
+
+        widths.boldText(totalAmountColIndex, profitLabel);
+        widths.amount(totalAmountColIndex + 1, overallTotalCost);
+        widths.amount(totalAmountColIndex + 1, overallTotalAmount - overallTotalCost);
+        widths.applyTo(sheet);
+    }
+
+    /**
+     * Creates a workbook that keeps only a small window of rows in memory and spills the rest to
+     * compressed temporary files, so the heap used by a report does not grow with its size.
+     */
+    private static SXSSFWorkbook createStreamingWorkbook() {
+        final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    private static void disposeQuietly(final SXSSFWorkbook workbook) {
+        try {
+            workbook.close();
+        } catch (IOException e) {
+            log.warn("Could not close report workbook", e);
+        }
+        // Deletes the temporary sheet files; close() alone leaves them behind.
+        workbook.dispose();
+    }
+
+    /////////////// Helper Methods for Cell Styles ///////////////
+
+    /**
+     * Cell styles of the shop × product sheets, created once per workbook and shared by all its sheets.
+     */
+    private record PivotStyles(CellStyle title, CellStyle header, CellStyle data, CellStyle numeric,
+                               CellStyle integer, CellStyle summary) {
+
+        static PivotStyles create(final Workbook workbook) {
+            return new PivotStyles(createTitleCellStyle(workbook), createHeaderCellStyle(workbook),
+                    createDataCellStyle(workbook), createNumericCellStyle(workbook),
+                    createIntegerCellStyle(workbook), createSummaryCellStyle(workbook));
+        }
+    }
+
+    private static CellStyle createBoldCellStyle(final Workbook workbook) {
+        final CellStyle style = workbook.createCellStyle();
+        final Font font = workbook.createFont();
+        font.setBold(true);
+        style.setFont(font);
+        return style;
+    }
+
+    private static CellStyle createTitleCellStyle(final Workbook workbook) {
+        final CellStyle style = workbook.createCellStyle();
+        final Font font = workbook.createFont();
+        font.setBold(true);
+        font.setFontHeightInPoints((short) 16);
+        style.setFont(font);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        return style;
+    }
+
+    private static CellStyle createHeaderCellStyle(final Workbook workbook) {
+        final CellStyle style = workbook.createCellStyle();
+        final Font font = workbook.createFont();
+        font.setBold(true);
+        font.setFontHeightInPoints((short) 12);
+        style.setFont(font);
+        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        setThinBorders(style);
+        return style;
+    }
+
+    private static CellStyle createDataCellStyle(final Workbook workbook) {
+        final CellStyle style = workbook.createCellStyle();
+        setThinBorders(style);
+        return style;
+    }
+
+    private static CellStyle createNumericCellStyle(final Workbook workbook) {
+        final CellStyle style = createDataCellStyle(workbook);
+        final DataFormat dataFormat = workbook.createDataFormat();
+        style.setDataFormat(dataFormat.getFormat("#,##0.00"));
+        return style;
+    }
+
+    private static CellStyle createIntegerCellStyle(final Workbook workbook) {
+        final CellStyle style = createDataCellStyle(workbook);
+        final DataFormat dataFormat = workbook.createDataFormat();
+        style.setDataFormat(dataFormat.getFormat("0"));
+        return style;
+    }
+
+    private static CellStyle createSummaryCellStyle(final Workbook workbook) {
+        final CellStyle style = workbook.createCellStyle();
+        final Font font = workbook.createFont();
+        font.setBold(true);
+        style.setFont(font);
+        style.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        setThinBorders(style);
+        return style;
+    }
+
+    private static void setThinBorders(final CellStyle style) {
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBorderTop(BorderStyle.THIN);
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setBorderRight(BorderStyle.THIN);
+    }
+}
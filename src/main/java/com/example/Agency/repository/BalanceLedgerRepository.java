@@ -0,0 +1,129 @@
+package com.example.Agency.repository;
+
+import com.example.Agency.domain.LedgerEntryType;
+import com.example.Agency.repository.row.BalanceSnapshotRow;
+import com.example.Agency.repository.row.LedgerEntryRow;
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Appends to the balance ledger and takes and reads the balance snapshots.
+ * <p>
+ * Writes run on the caller's transaction, which must already hold the user's row lock (taken by the
+ * balance update itself), so a user's entries and snapshots are written in the order they commit.
+ */
+@Repository
+public class BalanceLedgerRepository extends JdbcQuerySupport {
+
+    private static final String APPEND_SQL = "INSERT INTO balance_ledger " +
+            "(user_id, entry_type, reference_id, business_date, due_delta, advance_delta, recorded_at) " +
+            "VALUES (:userId, :entryType, :referenceId, :businessDate, :dueDelta, :advanceDelta, :recordedAt)";
+
+    private static final String LATEST_SNAPSHOT_ENTRY = "COALESCE((SELECT MAX(last_entry_id) FROM balance_snapshot " +
+            "WHERE user_id = :userId), 0)";
+
+    // Takes the balance from the user row, which the ledger entries up to the newest one add up to.
+    // Nothing is written when no entry was appended since the latest snapshot.
+    private static final String SNAPSHOT_SQL = "INSERT INTO balance_snapshot " +
+            "(user_id, last_entry_id, snapshot_at, due_amount, advance) " +
+            "SELECT u.user_id, l.last_entry_id, :snapshotAt, COALESCE(u.due_amount, 0), COALESCE(u.advance, 0) " +
+            "FROM user u " +
+            "JOIN (SELECT MAX(entry_id) AS last_entry_id FROM balance_ledger WHERE user_id = :userId) l " +
+            "WHERE u.user_id = :userId AND l.last_entry_id > " + LATEST_SNAPSHOT_ENTRY;
+
+    private static final String SNAPSHOT_BEFORE_SQL = "SELECT last_entry_id, snapshot_at, due_amount, advance " +
+            "FROM balance_snapshot " +
+            "WHERE user_id = :userId AND snapshot_at < :before " +
+            "ORDER BY snapshot_at DESC, last_entry_id DESC LIMIT 1";
+
+    private static final String OPENING_SNAPSHOT_SQL = "SELECT last_entry_id, snapshot_at, due_amount, advance " +
+            "FROM balance_snapshot WHERE user_id = :userId AND last_entry_id = 0";
+
+    private static final String ENTRIES_SQL = "SELECT entry_id, entry_type, reference_id, business_date, " +
+            "due_delta, advance_delta, recorded_at " +
+            "FROM balance_ledger " +
+            "WHERE user_id = :userId AND entry_id > :afterEntryId AND recorded_at < :before " +
+            "ORDER BY entry_id";
+
+    private static final String ACTIVE_USERS_SQL = "SELECT DISTINCT user_id FROM balance_ledger " +
+            "WHERE recorded_at >= :since";
+
+    public BalanceLedgerRepository(final NamedParameterJdbcTemplate jdbc) {
+        super(jdbc);
+    }
+
+    /**
+     * Appends an entry and returns its id.
+     */
+    public long append(final String userId, final LedgerEntryType entryType, final String referenceId,
+                       final LocalDate businessDate, final Money dueDelta, final Money advanceDelta,
+                       final LocalDateTime recordedAt) {
+        final MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("entryType", entryType.name())
+                .addValue("referenceId", referenceId)
+                .addValue("businessDate", businessDate)
+                .addValue("dueDelta", dueDelta.toDouble())
+                .addValue("advanceDelta", advanceDelta.toDouble())
+                .addValue("recordedAt", Timestamp.valueOf(recordedAt));
+        final KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.update(APPEND_SQL, params, keyHolder, new String[]{"entry_id"});
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * Snapshots the user's current balance if entries were appended since the latest snapshot.
+     *
+     * @return true if a snapshot was written
+     */
+    public boolean snapshot(final String userId, final LocalDateTime snapshotAt) {
+        return jdbc.update(SNAPSHOT_SQL, new MapSqlParameterSource("userId", userId)
+                .addValue("snapshotAt", Timestamp.valueOf(snapshotAt))) == 1;
+    }
+
+    /**
+     * The user's latest snapshot taken before the given time.
+     */
+    public Optional<BalanceSnapshotRow> findSnapshotBefore(final String userId, final LocalDateTime before) {
+        final MapSqlParameterSource params = new MapSqlParameterSource("userId", userId)
+                .addValue("before", Timestamp.valueOf(before));
+        return query("findSnapshotBefore", SNAPSHOT_BEFORE_SQL, params, BalanceSnapshotRow.MAPPER)
+                .stream().findFirst();
+    }
+
+    /**
+     * The balance the user had when the ledger was introduced, if the user existed then.
+     */
+    public Optional<BalanceSnapshotRow> findOpeningSnapshot(final String userId) {
+        return query("findOpeningSnapshot", OPENING_SNAPSHOT_SQL, new MapSqlParameterSource("userId", userId),
+                BalanceSnapshotRow.MAPPER).stream().findFirst();
+    }
+
+    /**
+     * The user's entries after the given entry and recorded before the given time, in booking order.
+     */
+    public List<LedgerEntryRow> findEntries(final String userId, final long afterEntryId, final LocalDateTime before) {
+        final MapSqlParameterSource params = new MapSqlParameterSource("userId", userId)
+                .addValue("afterEntryId", afterEntryId)
+                .addValue("before", Timestamp.valueOf(before));
+        return query("findEntries", ENTRIES_SQL, params, LedgerEntryRow.MAPPER);
+    }
+
+    /**
+     * The users with entries recorded at or after the given time.
+     */
+    public List<String> findUsersWithEntriesSince(final LocalDateTime since) {
+        return jdbc.queryForList(ACTIVE_USERS_SQL, new MapSqlParameterSource("since", Timestamp.valueOf(since)),
+                String.class);
+    }
+}
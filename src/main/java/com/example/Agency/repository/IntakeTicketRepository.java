@@ -0,0 +1,63 @@
+package com.example.Agency.repository;
+
+import com.example.Agency.repository.row.AppliedTicketRow;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records which intake tickets have been applied, so a journaled ticket is never applied twice.
+ * <p>
+ * {@link #markApplied} runs on the caller's transaction, the one that writes the ticket's order lines.
+ */
+@Repository
+public class IntakeTicketRepository extends JdbcQuerySupport {
+
+    // Keeps the IN list of a lookup well below the driver's placeholder limit.
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO intake_ticket (ticket_id, order_id, applied_at) " +
+            "VALUES (:ticketId, :orderId, :appliedAt)";
+
+    private static final String FIND_SQL = "SELECT ticket_id, order_id FROM intake_ticket " +
+            "WHERE ticket_id IN (:ticketIds)";
+
+    private static final String PURGE_SQL = "DELETE FROM intake_ticket WHERE applied_at < :cutoff";
+
+    public IntakeTicketRepository(final NamedParameterJdbcTemplate jdbc) {
+        super(jdbc);
+    }
+
+    public void markApplied(final List<String> ticketIds, final String orderId, final LocalDateTime appliedAt) {
+        final SqlParameterSource[] batch = ticketIds.stream()
+                .map(ticketId -> new MapSqlParameterSource()
+                        .addValue("ticketId", ticketId)
+                        .addValue("orderId", orderId)
+                        .addValue("appliedAt", Timestamp.valueOf(appliedAt)))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(INSERT_SQL, batch);
+    }
+
+    /**
+     * Returns the tickets among the given ids that have been applied.
+     */
+    public List<AppliedTicketRow> findApplied(final List<String> ticketIds) {
+        final List<AppliedTicketRow> applied = new ArrayList<>();
+        for (int from = 0; from < ticketIds.size(); from += LOOKUP_CHUNK) {
+            final List<String> chunk = ticketIds.subList(from, Math.min(from + LOOKUP_CHUNK, ticketIds.size()));
+            applied.addAll(query("findAppliedTickets", FIND_SQL,
+                    new MapSqlParameterSource("ticketIds", chunk), AppliedTicketRow.MAPPER));
+        }
+        return applied;
+    }
+
+    public int deleteAppliedBefore(final LocalDateTime cutoff) {
+        return jdbc.update(PURGE_SQL, new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+}
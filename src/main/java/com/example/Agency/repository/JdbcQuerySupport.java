@@ -0,0 +1,34 @@
+package com.example.Agency.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.List;
+
+/**
+ * Base for the JDBC read repositories, which map result sets straight into row records.
+ * Every query goes through {@link #query}, so the cost of executing and mapping each one shows up
+ * in one place when DEBUG logging is enabled for this package.
+ */
+@Slf4j
+abstract class JdbcQuerySupport {
+
+    protected final NamedParameterJdbcTemplate jdbc;
+
+    protected JdbcQuerySupport(final NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    protected <T> List<T> query(final String name, final String sql, final SqlParameterSource params,
+                                final RowMapper<T> mapper) {
+        if (!log.isDebugEnabled()) {
+            return jdbc.query(sql, params, mapper);
+        }
+        final long started = System.nanoTime();
+        final List<T> rows = jdbc.query(sql, params, mapper);
+        log.debug("{} returned {} rows in {} us", name, rows.size(), (System.nanoTime() - started) / 1_000);
+        return rows;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.Agency.repository;
+
+import com.example.Agency.repository.row.OrderKeyRow;
+import com.example.Agency.repository.row.OrderLineRow;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read queries behind the order listings, mapped into typed rows.
+ */
+@Repository
+public class OrderQueryRepository extends JdbcQuerySupport {
+
+    private static final String ORDER_LINE_JOINS = "FROM orders o " +
+            "JOIN user u ON o.user_id = u.user_id " +
+            "JOIN order_details od ON o.order_id = od.order_id " +
+            "JOIN product p ON od.product_id = p.product_id ";
+
+    private static final String ORDER_PAGE_SELECT = "SELECT o.order_id, DATE_FORMAT(o.order_date, '%Y-%m-%d') " +
+            "FROM orders o ";
+
+    private static final String ORDER_PAGE_ORDER_BY = "ORDER BY o.order_date DESC, o.order_id DESC " +
+            "LIMIT :limit";
+
+    private static final String LINES_BY_ORDER_IDS_SQL = OrderLineRow.SELECT + ORDER_LINE_JOINS +
+            "WHERE o.order_id IN (:orderIds) " +
+            "ORDER BY o.order_date DESC, o.order_id DESC";
+
+    private static final String LINES_BY_USER_SQL = OrderLineRow.SELECT + ORDER_LINE_JOINS +
+            "WHERE u.user_id = :userId " +
+            "ORDER BY o.order_id";
+
+    public OrderQueryRepository(final NamedParameterJdbcTemplate jdbc) {
+        super(jdbc);
+    }
+
+    /**
+     * Returns one page of order keys in listing order, newest first.
+     * The cursor columns are the date and id of the last order of the previous page, or null for the first page;
+     * the scan starts right after that position so each page costs the same however deep it is.
+     * Only the filters that are present become predicates, so the date filters and the cursor are
+     * range conditions on idx_orders_date_id.
+     */
+    public List<OrderKeyRow> findOrderPage(final String orderDate, final Boolean shift, final String startDate,
+                                           final String endDate, final String cursorDate, final String cursorId,
+                                           final int limit) {
+        final SqlWhere where = new SqlWhere()
+                .and("o.order_date = :orderDate", "orderDate", orderDate)
+                .and("o.order_shift = :shift", "shift", shift)
+                .and("o.order_date >= :startDate", "startDate", startDate)
+                .and("o.order_date <= :endDate", "endDate", endDate)
+                // The leading <= bounds the index range; the OR then skips rows already returned on that date.
+                .and("o.order_date <= :cursorDate AND (o.order_date < :cursorDate OR o.order_id < :cursorId)",
+                        "cursorDate", cursorDate, "cursorId", cursorId)
+                .bind("limit", limit);
+        return query("findOrderPage", ORDER_PAGE_SELECT + where.sql() + ORDER_PAGE_ORDER_BY, where.params(),
+                OrderKeyRow.MAPPER);
+    }
+
+    /**
+     * Returns the lines of the given orders, grouped by order in listing order.
+     */
+    public List<OrderLineRow> findOrderLinesByOrderIds(final Collection<String> orderIds) {
+        return query("findOrderLinesByOrderIds", LINES_BY_ORDER_IDS_SQL,
+                new MapSqlParameterSource("orderIds", orderIds), OrderLineRow.MAPPER);
+    }
+
+    public List<OrderLineRow> findOrderLinesByUserId(final String userId) {
+        return query("findOrderLinesByUserId", LINES_BY_USER_SQL,
+                new MapSqlParameterSource("userId", userId), OrderLineRow.MAPPER);
+    }
+}
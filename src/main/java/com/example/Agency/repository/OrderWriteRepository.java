@@ -0,0 +1,85 @@
+package com.example.Agency.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes order headers and lines with native INSERT ... ON DUPLICATE KEY UPDATE statements.
+ * <p>
+ * The unique keys on orders(user_id, order_date, order_shift) and order_details(order_id, product_id)
+ * (see db/migration/V2) let MySQL decide between insert and update, so merging into an order needs
+ * no prior read and two requests for the same order cannot both insert it.
+ * Runs on the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderWriteRepository {
+
+    // Totals are added as deltas; order_time keeps the time the order was first created.
+    private static final String UPSERT_ORDER_SQL = "INSERT INTO orders " +
+            "(order_id, user_id, order_date, order_time, order_shift, total_amount, cost_amount, catalog_version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "total_amount = total_amount + VALUES(total_amount), " +
+            "cost_amount = cost_amount + VALUES(cost_amount), " +
+            "catalog_version = VALUES(catalog_version)";
+
+    private static final String FIND_ORDER_ID_SQL = "SELECT order_id FROM orders " +
+            "WHERE user_id = ? AND order_date = ? AND order_shift = ?";
+
+    // Subtotals are added as deltas like the order totals, so an order total, the sum of its lines and
+    // daily_product_sales always agree. An existing line keeps its recorded unit price.
+    private static final String UPSERT_LINE_SQL = "INSERT INTO order_details " +
+            "(order_detail_id, order_id, product_id, quantity, price, cost, subtotal, cost_subtotal) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "quantity = quantity + VALUES(quantity), " +
+            "subtotal = subtotal + VALUES(subtotal), " +
+            "cost_subtotal = cost_subtotal + VALUES(cost_subtotal)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the order for the user, date and shift, or adds the given amounts to the existing one.
+     *
+     * @return the id of the created or updated order
+     */
+    public String upsertOrder(final String userId, final LocalDate orderDate, final LocalTime orderTime,
+                              final boolean orderShift, final double totalDelta, final double costDelta,
+                              final long catalogVersion) {
+        jdbcTemplate.update(UPSERT_ORDER_SQL, UUID.randomUUID().toString(), userId, Date.valueOf(orderDate),
+                Time.valueOf(orderTime), orderShift, totalDelta, costDelta, catalogVersion);
+        return jdbcTemplate.queryForObject(FIND_ORDER_ID_SQL, String.class, userId, Date.valueOf(orderDate), orderShift);
+    }
+
+    /**
+     * Inserts new lines and adds the quantities and subtotals of lines that already exist, as one JDBC batch.
+     */
+    public void upsertLines(final String orderId, final List<LineUpsert> lines) {
+        jdbcTemplate.batchUpdate(UPSERT_LINE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, orderId);
+            ps.setString(3, line.productId());
+            ps.setInt(4, line.quantity());
+            ps.setDouble(5, line.price());
+            ps.setDouble(6, line.cost());
+            ps.setDouble(7, line.subtotal());
+            ps.setDouble(8, line.costSubtotal());
+        });
+    }
+
+    /**
+     * One order line to insert, or whose quantity to add to the existing line for the same product.
+     */
+    public record LineUpsert(String productId, int quantity, double price, double cost,
+                             double subtotal, double costSubtotal) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.Agency.repository;
+
+import com.example.Agency.repository.row.PaymentHistoryRow;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read queries behind the payment history, mapped into typed rows.
+ */
+@Repository
+public class PaymentQueryRepository extends JdbcQuerySupport {
+
+    // Only the user columns the history shows are read; no User entity is loaded.
+    private static final String HISTORY_SELECT = "SELECT pm.payment_id, u.user_id, u.user_name, u.shop_name, " +
+            "DATE_FORMAT(pm.payment_date, '%Y-%m-%d'), pm.amount_paid, pm.recived_by " +
+            "FROM payments pm " +
+            "JOIN user u ON pm.user_id = u.user_id ";
+
+    private static final String HISTORY_ORDER_BY = "ORDER BY pm.payment_date DESC, pm.payment_id DESC " +
+            "LIMIT :limit";
+
+    public PaymentQueryRepository(final NamedParameterJdbcTemplate jdbc) {
+        super(jdbc);
+    }
+
+    /**
+     * Returns one page of payments, newest first, with only the filters that are present as predicates.
+     * The cursor columns are the date and id of the last payment of the previous page, or null for the
+     * first page. The date range and the cursor are range conditions on idx_payments_date_id, or on
+     * idx_payments_user_date / idx_payments_received_date when filtering by user or collector, so each
+     * page costs the same however deep it is.
+     */
+    public List<PaymentHistoryRow> findHistoryPage(final String userId, final LocalDate fromDate, final LocalDate toDate,
+                                                   final String receivedBy, final String cursorDate,
+                                                   final String cursorId, final int limit) {
+        final SqlWhere where = new SqlWhere()
+                .and("pm.user_id = :userId", "userId", userId)
+                .and("pm.recived_by = :receivedBy", "receivedBy", receivedBy)
+                .and("pm.payment_date >= :fromDate", "fromDate", fromDate)
+                .and("pm.payment_date <= :toDate", "toDate", toDate)
+                .and("pm.payment_date <= :cursorDate AND (pm.payment_date < :cursorDate OR pm.payment_id < :cursorId)",
+                        "cursorDate", cursorDate, "cursorId", cursorId)
+                .bind("limit", limit);
+        return query("findHistoryPage", HISTORY_SELECT + where.sql() + HISTORY_ORDER_BY, where.params(),
+                PaymentHistoryRow.MAPPER);
+    }
+}
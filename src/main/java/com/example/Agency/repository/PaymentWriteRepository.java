@@ -0,0 +1,35 @@
+package com.example.Agency.repository;
+
+import com.example.Agency.model.Payments;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Inserts payment rows as one JDBC batch.
+ * <p>
+ * Payments carry their id from construction, so saving them through JPA first selects each one to tell
+ * an insert from a merge; a plain batched INSERT skips that round trip. Runs on the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentWriteRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO payments " +
+            "(payment_id, user_id, payment_date, amount_paid, recived_by) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(final List<Payments> payments) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, payments, payments.size(), (ps, payment) -> {
+            ps.setString(1, payment.getPaymentId());
+            ps.setString(2, payment.getUser().getUserId());
+            ps.setDate(3, Date.valueOf(payment.getPaymentDate()));
+            ps.setDouble(4, payment.getAmountPaid().toDouble());
+            ps.setString(5, payment.getReceivedBy());
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.Agency.repository;
+
+import com.example.Agency.repository.row.OrderAmountRow;
+import com.example.Agency.repository.row.SalesSummaryRow;
+import com.example.Agency.repository.row.ShopDueRow;
+import com.example.Agency.repository.row.ShopProductSalesRow;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Aggregate queries behind the Excel sales reports and the receivables aging, mapped into typed rows.
+ */
+@Repository
+public class ReportQueryRepository extends JdbcQuerySupport {
+
+    // Both reports read daily_product_sales (see SalesAggregateRepository), so their cost depends on the
+    // number of products and shops in the period rather than on the number of order lines.
+    private static final String SALES_SUMMARY_SELECT = "SELECT DATE_FORMAT(a.order_date, '%Y-%m-%d') AS orderDate, " +
+            "a.order_shift AS shift, " +
+            "p.product_name AS productName, " +
+            "SUM(a.quantity), " +
+            "SUM(a.total_amount), " +
+            "SUM(a.total_cost) " +
+            "FROM daily_product_sales a " +
+            "JOIN product p ON a.product_id = p.product_id ";
+
+    private static final String SALES_SUMMARY_GROUP_BY =
+            "GROUP BY DATE_FORMAT(a.order_date, '%Y-%m-%d'), a.order_shift, p.product_name " +
+            "ORDER BY orderDate, shift, productName";
+
+    private static final String SHOP_PRODUCT_SALES_SELECT = "SELECT u.user_id, " +
+            "u.shop_name, " +
+            "p.product_name, " +
+            "SUM(a.quantity), " +
+            "SUM(a.total_amount), " +
+            "u.due_amount, " +
+            "SUM(a.total_cost) " +
+            "FROM daily_product_sales a " +
+            "JOIN user u ON a.user_id = u.user_id " +
+            "JOIN product p ON a.product_id = p.product_id ";
+
+    private static final String SHOP_PRODUCT_SALES_GROUP_BY =
+            "GROUP BY u.user_id, u.shop_name, p.product_name, u.due_amount " +
+            "ORDER BY u.shop_name, u.user_id, p.product_name";
+
+    private static final String SHOPS_WITH_DUE_SQL = "SELECT user_id, shop_name, due_amount FROM user " +
+            "WHERE due_amount > 0 " +
+            "ORDER BY shop_name, user_id";
+
+    private static final String ORDER_AMOUNTS_SELECT = "SELECT order_date, order_shift, total_amount FROM orders ";
+
+    private static final String ORDER_AMOUNTS_ORDER_BY = "ORDER BY order_date DESC, order_shift DESC LIMIT :limit";
+
+    public ReportQueryRepository(final NamedParameterJdbcTemplate jdbc) {
+        super(jdbc);
+    }
+
+    /**
+     * Returns quantities and amounts per date, shift and product; null filters are left out of the query.
+     */
+    public List<SalesSummaryRow> findSalesSummary(final String orderDate, final Boolean shift) {
+        final SqlWhere where = new SqlWhere()
+                .and("a.order_date = :orderDate", "orderDate", orderDate)
+                .and("a.order_shift = :shift", "shift", shift);
+        return query("findSalesSummary", SALES_SUMMARY_SELECT + where.sql() + SALES_SUMMARY_GROUP_BY,
+                where.params(), SalesSummaryRow.MAPPER);
+    }
+
+    /**
+     * Returns quantities and amounts per shop and product for one day, for one shift or, if shift is
+     * null, for both.
+     */
+    public List<ShopProductSalesRow> findShopProductSales(final LocalDate orderDate, final Boolean shift) {
+        final SqlWhere where = new SqlWhere()
+                .and("a.order_date = :orderDate", "orderDate", orderDate)
+                .and("a.order_shift = :shift", "shift", shift);
+        return query("findShopProductSales", SHOP_PRODUCT_SALES_SELECT + where.sql() + SHOP_PRODUCT_SALES_GROUP_BY,
+                where.params(), ShopProductSalesRow.MAPPER);
+    }
+
+    /**
+     * Returns every shop that owes something, by shop name.
+     */
+    public List<ShopDueRow> findShopsWithDue() {
+        return query("findShopsWithDue", SHOPS_WITH_DUE_SQL, new MapSqlParameterSource(), ShopDueRow.MAPPER);
+    }
+
+    /**
+     * Returns one page of a user's order totals, newest first. The cursor is the date and shift of the last
+     * order of the previous page, or null for the first page; each page is a short backward range scan on
+     * uk_orders_user_date_shift.
+     */
+    public List<OrderAmountRow> findOrderAmountsPage(final String userId, final LocalDate cursorDate,
+                                                     final Boolean cursorShift, final int limit) {
+        final SqlWhere where = new SqlWhere()
+                .and("user_id = :userId", "userId", userId)
+                .and("order_date <= :cursorDate AND (order_date < :cursorDate OR order_shift < :cursorShift)",
+                        "cursorDate", cursorDate, "cursorShift", cursorShift)
+                .bind("limit", limit);
+        return query("findOrderAmountsPage", ORDER_AMOUNTS_SELECT + where.sql() + ORDER_AMOUNTS_ORDER_BY,
+                where.params(), OrderAmountRow.MAPPER);
+    }
+}
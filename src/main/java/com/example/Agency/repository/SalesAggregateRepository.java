@@ -0,0 +1,106 @@
+package com.example.Agency.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Maintains daily_product_sales, the order lines summed per (order date, shift, product, shop).
+ * <p>
+ * Order writes add their line deltas here in the same transaction, so the table always equals
+ * the GROUP BY over order_details that the reports used to run; {@link #rebuild} recomputes it
+ * from the order lines and {@link #countMismatches} checks the two agree.
+ */
+@Repository
+public class SalesAggregateRepository extends JdbcQuerySupport {
+
+    private static final String ADD_SQL = "INSERT INTO daily_product_sales " +
+            "(order_date, order_shift, product_id, user_id, quantity, total_amount, total_cost) " +
+            "VALUES (:orderDate, :shift, :productId, :userId, :quantity, :totalAmount, :totalCost) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "quantity = quantity + VALUES(quantity), " +
+            "total_amount = total_amount + VALUES(total_amount), " +
+            "total_cost = total_cost + VALUES(total_cost)";
+
+    private static final String DELETE_SQL = "DELETE FROM daily_product_sales ";
+
+    private static final String REBUILD_SELECT = "INSERT INTO daily_product_sales " +
+            "(order_date, order_shift, product_id, user_id, quantity, total_amount, total_cost) " +
+            "SELECT o.order_date, o.order_shift, od.product_id, o.user_id, " +
+            "SUM(od.quantity), SUM(COALESCE(od.subtotal, 0)), SUM(COALESCE(od.cost_subtotal, 0)) " +
+            "FROM orders o " +
+            "JOIN order_details od ON o.order_id = od.order_id ";
+
+    private static final String REBUILD_GROUP_BY = "GROUP BY o.order_date, o.order_shift, od.product_id, o.user_id";
+
+    // The aggregate minus a fresh aggregation; any key left with a non-zero difference is a mismatch.
+    private static final String MISMATCH_SQL = "SELECT COUNT(*) FROM (" +
+            "SELECT SUM(quantity) AS quantity_diff, SUM(total_amount) AS amount_diff, SUM(total_cost) AS cost_diff " +
+            "FROM (" +
+            "SELECT order_date, order_shift, product_id, user_id, quantity, total_amount, total_cost " +
+            "FROM daily_product_sales %1$s" +
+            "UNION ALL " +
+            "SELECT o.order_date, o.order_shift, od.product_id, o.user_id, -od.quantity, " +
+            "-COALESCE(od.subtotal, 0), -COALESCE(od.cost_subtotal, 0) " +
+            "FROM orders o JOIN order_details od ON o.order_id = od.order_id %1$s" +
+            ") diff " +
+            "GROUP BY order_date, order_shift, product_id, user_id " +
+            "HAVING quantity_diff <> 0 OR ABS(amount_diff) >= 0.005 OR ABS(cost_diff) >= 0.005" +
+            ") mismatches";
+
+    public SalesAggregateRepository(final NamedParameterJdbcTemplate jdbc) {
+        super(jdbc);
+    }
+
+    /**
+     * Adds the given line deltas to the aggregate as one JDBC batch. Runs on the caller's transaction.
+     */
+    public void add(final LocalDate orderDate, final boolean shift, final String userId,
+                    final List<OrderWriteRepository.LineUpsert> lines) {
+        final SqlParameterSource[] batch = new SqlParameterSource[lines.size()];
+        for (int i = 0; i < batch.length; i++) {
+            final OrderWriteRepository.LineUpsert line = lines.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("orderDate", orderDate)
+                    .addValue("shift", shift)
+                    .addValue("productId", line.productId())
+                    .addValue("userId", userId)
+                    .addValue("quantity", line.quantity())
+                    .addValue("totalAmount", line.subtotal())
+                    .addValue("totalCost", line.costSubtotal());
+        }
+        jdbc.batchUpdate(ADD_SQL, batch);
+    }
+
+    /**
+     * Recomputes the aggregate from the order lines for the given dates, or for all dates when both are null.
+     * Must run in a transaction so readers never see the range half rebuilt.
+     *
+     * @return the number of aggregate rows written
+     */
+    public int rebuild(final LocalDate from, final LocalDate to) {
+        final SqlWhere where = dateRange(from, to);
+        jdbc.update(DELETE_SQL + where.sql(), where.params());
+        return jdbc.update(REBUILD_SELECT + where.sql() + REBUILD_GROUP_BY, where.params());
+    }
+
+    /**
+     * Counts (date, shift, product, shop) keys whose aggregate differs from the order lines.
+     */
+    public long countMismatches(final LocalDate from, final LocalDate to) {
+        final SqlWhere where = dateRange(from, to);
+        final Long count = jdbc.queryForObject(String.format(MISMATCH_SQL, where.sql()), where.params(), Long.class);
+        return count == null ? 0L : count;
+    }
+
+    // order_date is unqualified so the same clause applies to the aggregate and to orders.
+    private static SqlWhere dateRange(final LocalDate from, final LocalDate to) {
+        return new SqlWhere()
+                .and("order_date >= :from", "from", from)
+                .and("order_date <= :to", "to", to);
+    }
+}
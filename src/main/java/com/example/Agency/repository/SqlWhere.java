@@ -0,0 +1,69 @@
+package com.example.Agency.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+/**
+ * Builds a WHERE clause from optional filters, emitting a predicate only when its value is present.
+ * <p>
+ * The {@code (:x IS NULL OR col = :x)} pattern keeps one static statement but stops MySQL from using
+ * a range index on the column; composing the clause keeps every predicate sargable.
+ */
+final class SqlWhere {
+
+    private final StringBuilder clause = new StringBuilder();
+    private final MapSqlParameterSource params = new MapSqlParameterSource();
+
+    /**
+     * Adds the predicate if the value is not null, binding the value to the named parameter.
+     *
+     * @param predicate a condition referring to {@code :name}
+     * @param name      the parameter name used in the predicate
+     * @param value     the filter value; null skips the predicate
+     */
+    SqlWhere and(final String predicate, final String name, final Object value) {
+        if (value != null) {
+            append(predicate);
+            params.addValue(name, value);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a predicate with several parameters if the first value is not null.
+     */
+    SqlWhere and(final String predicate, final String name, final Object value,
+                 final String otherName, final Object otherValue) {
+        if (value != null) {
+            append(predicate);
+            params.addValue(name, value);
+            params.addValue(otherName, otherValue);
+        }
+        return this;
+    }
+
+    /**
+     * Binds a parameter used outside the WHERE clause, such as a LIMIT.
+     */
+    SqlWhere bind(final String name, final Object value) {
+        params.addValue(name, value);
+        return this;
+    }
+
+    /**
+     * Returns the WHERE clause with a trailing space, or an empty string when no predicate applies.
+     */
+    String sql() {
+        return clause.length() == 0 ? "" : "WHERE " + clause + " ";
+    }
+
+    MapSqlParameterSource params() {
+        return params;
+    }
+
+    private void append(final String predicate) {
+        if (clause.length() > 0) {
+            clause.append(" AND ");
+        }
+        clause.append(predicate);
+    }
+}
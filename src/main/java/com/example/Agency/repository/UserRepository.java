@@ -2,11 +2,55 @@ package com.example.Agency.repository;
 
 import com.example.Agency.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User,String> {
       Optional<User> findByMobileNumber(String mobileNo);
 
     //  Optional<User> findByUserId(String userId);
+
+    // Id and mobile number of every user, for matching imported rows without loading User entities
+    @Query("SELECT u.userId AS userId, u.mobileNumber AS mobileNumber FROM User u")
+    List<UserKey> findAllKeys();
+
+    interface UserKey {
+        String getUserId();
+
+        String getMobileNumber();
+    }
+
+    // Balance changes are applied as single-statement deltas so concurrent orders and payments never
+    // overwrite each other. Each one bumps the version so stale User entities fail instead of clobbering it.
+
+    // Locks the user row until the transaction ends; null if there is no such user.
+    @Query(value = "SELECT COALESCE(due_amount, 0) FROM user WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Double lockDueAmount(@Param("userId") String userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE user SET due_amount = due_amount + :amount, version = version + 1 " +
+            "WHERE user_id = :userId", nativeQuery = true)
+    int increaseDueAmount(@Param("userId") String userId, @Param("amount") double amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE user SET due_amount = due_amount - :amount, version = version + 1 " +
+            "WHERE user_id = :userId AND due_amount >= :amount", nativeQuery = true)
+    int decreaseDueAmount(@Param("userId") String userId, @Param("amount") double amount);
+
+    // Only under the lock taken by lockDueAmount: the new due amount is computed from the locked value, which
+    // also replaces any floating-point drift in the stored one.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE user SET due_amount = :dueAmount, advance = COALESCE(advance, 0) + :toAdvance, " +
+            "version = version + 1 WHERE user_id = :userId", nativeQuery = true)
+    int applyLockedPayment(@Param("userId") String userId, @Param("dueAmount") double dueAmount,
+                           @Param("toAdvance") double toAdvance);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE user SET due_amount = due_amount - :amount, advance = advance - :amount, version = version + 1 " +
+            "WHERE user_id = :userId AND due_amount > 0 AND due_amount >= :amount AND advance >= :amount", nativeQuery = true)
+    int settleDueFromAdvance(@Param("userId") String userId, @Param("amount") double amount);
 }
@@ -0,0 +1,15 @@
+package com.example.Agency.repository.row;
+
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * An intake ticket whose lines have been committed.
+ *
+ * @param ticketId the intake ticket id
+ * @param orderId  the order the lines were merged into
+ */
+public record AppliedTicketRow(String ticketId, String orderId) {
+
+    public static final RowMapper<AppliedTicketRow> MAPPER =
+            (rs, rowNum) -> new AppliedTicketRow(rs.getString(1), rs.getString(2));
+}
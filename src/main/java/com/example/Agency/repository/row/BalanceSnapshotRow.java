@@ -0,0 +1,18 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's balance after every ledger entry up to lastEntryId. Amounts are in paise.
+ */
+public record BalanceSnapshotRow(long lastEntryId, LocalDateTime snapshotAt, long dueAmountMinor, long advanceMinor) {
+
+    public static final RowMapper<BalanceSnapshotRow> MAPPER = (rs, rowNum) -> new BalanceSnapshotRow(
+            rs.getLong(1),
+            rs.getTimestamp(2).toLocalDateTime(),
+            Money.toMinor(rs.getDouble(3)),
+            Money.toMinor(rs.getDouble(4)));
+}
@@ -0,0 +1,31 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.domain.LedgerEntryType;
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One change to a user's balance. The deltas are in paise.
+ *
+ * @param referenceId  the order or payment that caused the change
+ * @param businessDate the order or payment date
+ */
+public record LedgerEntryRow(long entryId, LedgerEntryType entryType, String referenceId, LocalDate businessDate,
+                             long dueDeltaMinor, long advanceDeltaMinor, LocalDateTime recordedAt) {
+
+    public static final RowMapper<LedgerEntryRow> MAPPER = (rs, rowNum) -> {
+        final Date businessDate = rs.getDate(4);
+        return new LedgerEntryRow(
+                rs.getLong(1),
+                LedgerEntryType.valueOf(rs.getString(2)),
+                rs.getString(3),
+                businessDate == null ? null : businessDate.toLocalDate(),
+                Money.toMinor(rs.getDouble(5)),
+                Money.toMinor(rs.getDouble(6)),
+                rs.getTimestamp(7).toLocalDateTime());
+    };
+}
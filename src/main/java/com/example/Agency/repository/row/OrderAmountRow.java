@@ -0,0 +1,17 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDate;
+
+/**
+ * The total of one order, in paise.
+ */
+public record OrderAmountRow(LocalDate orderDate, boolean orderShift, long totalAmountMinor) {
+
+    public static final RowMapper<OrderAmountRow> MAPPER = (rs, rowNum) -> new OrderAmountRow(
+            rs.getDate(1).toLocalDate(),
+            rs.getBoolean(2),
+            Money.toMinor(rs.getDouble(3)));
+}
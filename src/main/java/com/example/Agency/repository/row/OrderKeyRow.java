@@ -0,0 +1,14 @@
+package com.example.Agency.repository.row;
+
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Position of an order in the order listing.
+ *
+ * @param orderId   the order id
+ * @param orderDate the order date as yyyy-MM-dd
+ */
+public record OrderKeyRow(String orderId, String orderDate) {
+
+    public static final RowMapper<OrderKeyRow> MAPPER = (rs, rowNum) -> new OrderKeyRow(rs.getString(1), rs.getString(2));
+}
@@ -0,0 +1,37 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * One order line joined with its order, shop and product. Amounts are in paise.
+ * The order totals repeat on every line of the same order.
+ */
+public record OrderLineRow(String orderId, String userId, String shopName, String orderDate, String orderTime,
+                           String productName, int quantity, long priceMinor, long costMinor, long subtotalMinor,
+                           long costSubtotalMinor, long totalAmountMinor, long costAmountMinor) {
+
+    /**
+     * Selects the columns in the order the mapper reads them; append the FROM and WHERE clauses.
+     */
+    public static final String SELECT = "SELECT o.order_id, u.user_id, u.shop_name, " +
+            "DATE_FORMAT(o.order_date, '%Y-%m-%d'), DATE_FORMAT(o.order_time, '%H:%i:%s'), " +
+            "p.product_name, od.quantity, od.price, od.cost, od.subtotal, od.cost_subtotal, " +
+            "SUM(od.subtotal) OVER (PARTITION BY o.order_id), " +
+            "SUM(od.cost_subtotal) OVER (PARTITION BY o.order_id) ";
+
+    public static final RowMapper<OrderLineRow> MAPPER = (rs, rowNum) -> new OrderLineRow(
+            rs.getString(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getInt(7),
+            Money.toMinor(rs.getDouble(8)),
+            Money.toMinor(rs.getDouble(9)),
+            Money.toMinor(rs.getDouble(10)),
+            Money.toMinor(rs.getDouble(11)),
+            Money.toMinor(rs.getDouble(12)),
+            Money.toMinor(rs.getDouble(13)));
+}
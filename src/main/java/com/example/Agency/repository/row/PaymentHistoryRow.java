@@ -0,0 +1,22 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * One payment with the name and shop of the user who made it. The amount is in paise.
+ *
+ * @param paymentDate the payment date as yyyy-MM-dd
+ */
+public record PaymentHistoryRow(String paymentId, String userId, String userName, String shopName,
+                                String paymentDate, long amountPaidMinor, String receivedBy) {
+
+    public static final RowMapper<PaymentHistoryRow> MAPPER = (rs, rowNum) -> new PaymentHistoryRow(
+            rs.getString(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getString(5),
+            Money.toMinor(rs.getDouble(6)),
+            rs.getString(7));
+}
@@ -0,0 +1,19 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Sales of one product in one shift of one day. Amounts are in paise.
+ */
+public record SalesSummaryRow(String orderDate, boolean morningShift, String productName, long quantity,
+                              long totalAmountMinor, long totalCostMinor) {
+
+    public static final RowMapper<SalesSummaryRow> MAPPER = (rs, rowNum) -> new SalesSummaryRow(
+            rs.getString(1),
+            rs.getBoolean(2),
+            rs.getString(3),
+            rs.getLong(4),
+            Money.toMinor(rs.getDouble(5)),
+            Money.toMinor(rs.getDouble(6)));
+}
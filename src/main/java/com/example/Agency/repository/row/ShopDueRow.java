@@ -0,0 +1,15 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * A shop with its current due amount, in paise.
+ */
+public record ShopDueRow(String userId, String shopName, long dueAmountMinor) {
+
+    public static final RowMapper<ShopDueRow> MAPPER = (rs, rowNum) -> new ShopDueRow(
+            rs.getString(1),
+            rs.getString(2),
+            Money.toMinor(rs.getDouble(3)));
+}
@@ -0,0 +1,20 @@
+package com.example.Agency.repository.row;
+
+import com.example.Agency.util.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Sales of one product to one shop, with the shop's current due amount. Amounts are in paise.
+ */
+public record ShopProductSalesRow(String userId, String shopName, String productName, long quantity,
+                                  long totalAmountMinor, long dueAmountMinor, long totalCostMinor) {
+
+    public static final RowMapper<ShopProductSalesRow> MAPPER = (rs, rowNum) -> new ShopProductSalesRow(
+            rs.getString(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getLong(4),
+            Money.toMinor(rs.getDouble(5)),
+            Money.toMinor(rs.getDouble(6)),
+            Money.toMinor(rs.getDouble(7)));
+}
@@ -23,6 +23,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private PrincipalCache principalCache;
 
 
     @Override
@@ -40,7 +42,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         if (mobileNo != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(mobileNo);
+            // Cached per mobile number; the user is only read again after it changes or the entry expires.
+            UserDetails userDetails = principalCache.get(mobileNo, userDetailsService::loadUserByUsername);
 
             if (jwtUtil.validateToken(jwt, userDetails)) {
 
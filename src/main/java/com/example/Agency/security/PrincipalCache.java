@@ -0,0 +1,71 @@
+package com.example.Agency.security;
+
+import com.example.Agency.event.UserChangedEvent;
+import com.example.Agency.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Principals resolved for JWT-authenticated requests, keyed by mobile number, so a request with a known
+ * token does not look the user up again.
+ * <p>
+ * Entries are dropped when an update or deletion of the user commits and expire after the TTL in any
+ * case. Only the name and authorities are kept; the password hash is not needed to authenticate a token.
+ */
+@Component
+public class PrincipalCache {
+
+    private final BoundedTtlCache<String, UserDetails> cache;
+    // Bumped by every invalidation; a principal is only stored if no invalidation ran while it was loaded.
+    private volatile long invalidations;
+
+    public PrincipalCache(@Value("${app.security.principal-cache.max-entries:10000}") final int maxEntries,
+                          @Value("${app.security.principal-cache.ttl:5m}") final Duration ttl) {
+        this.cache = new BoundedTtlCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * Returns the cached principal for the mobile number, loading it on a miss.
+     *
+     * @param mobileNumber the token subject
+     * @param loader       loads the user; its exceptions are passed on and nothing is cached
+     */
+    public UserDetails get(final String mobileNumber, final Function<String, UserDetails> loader) {
+        final Optional<UserDetails> cached = cache.get(mobileNumber);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        final long invalidationsAtStart = invalidations;
+        final UserDetails loaded = loader.apply(mobileNumber);
+        final UserDetails principal = User.withUsername(loaded.getUsername())
+                .password("")
+                .authorities(loaded.getAuthorities())
+                .accountExpired(!loaded.isAccountNonExpired())
+                .accountLocked(!loaded.isAccountNonLocked())
+                .credentialsExpired(!loaded.isCredentialsNonExpired())
+                .disabled(!loaded.isEnabled())
+                .build();
+        synchronized (this) {
+            if (invalidations == invalidationsAtStart) {
+                cache.put(mobileNumber, principal);
+            }
+        }
+        return principal;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(final UserChangedEvent event) {
+        synchronized (this) {
+            invalidations++;
+        }
+        cache.remove(event.mobileNumber());
+    }
+}
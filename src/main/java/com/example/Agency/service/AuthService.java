@@ -2,11 +2,13 @@ package com.example.Agency.service;
 
 import com.example.Agency.dto.ApiResponse;
 import com.example.Agency.dto.response.LoginResponse;
+import com.example.Agency.event.UserChangedEvent;
 import com.example.Agency.model.User;
 import com.example.Agency.repository.UserRepository;
 import com.example.Agency.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -20,6 +22,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Validates that the provided mobile number is exactly 10 digits.
@@ -60,6 +63,7 @@ public class AuthService {
             log.error("Data integrity issue while saving user: {}", mobileNumber, ex);
             throw new RuntimeException("Failed to create user due to a data integrity issue", ex);
         }
+        eventPublisher.publishEvent(new UserChangedEvent(createdUser.getUserId(), mobileNumber));
 
         // Generate JWT token using the user's mobile number
         final String token = jwtUtil.generateToken(createdUser.getMobileNumber());
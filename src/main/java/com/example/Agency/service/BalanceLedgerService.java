@@ -0,0 +1,218 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.LedgerEntryType;
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.BalanceDto;
+import com.example.Agency.dto.BalanceStatementDto;
+import com.example.Agency.dto.LedgerEntryDto;
+import com.example.Agency.repository.BalanceLedgerRepository;
+import com.example.Agency.repository.UserRepository;
+import com.example.Agency.repository.row.BalanceSnapshotRow;
+import com.example.Agency.repository.row.LedgerEntryRow;
+import com.example.Agency.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records balance changes in the append-only ledger and answers balance and statement queries from it.
+ * <p>
+ * A snapshot of the user's balance is taken whenever an entry's id is a multiple of
+ * {@code entriesPerSnapshot}, so on average every {@code entriesPerSnapshot} entries of a user without
+ * reading anything back on the write path, and daily for every user with entries since the previous day.
+ * A balance at any time is therefore the latest snapshot before it plus a short replay, never more than a
+ * day's entries. Ledger time is booking time: a back-dated order counts from when it was entered, and its
+ * business date is kept on the entry.
+ */
+@Slf4j
+@Service
+public class BalanceLedgerService {
+
+    private final BalanceLedgerRepository ledgerRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int entriesPerSnapshot;
+    private final int maxStatementDays;
+
+    public BalanceLedgerService(final BalanceLedgerRepository ledgerRepository,
+                                final UserRepository userRepository,
+                                final PlatformTransactionManager transactionManager,
+                                @Value("${app.balance.snapshot.every-entries:100}") final int entriesPerSnapshot,
+                                @Value("${app.balance.statement.max-days:366}") final int maxStatementDays) {
+        this.ledgerRepository = ledgerRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entriesPerSnapshot = entriesPerSnapshot;
+        this.maxStatementDays = maxStatementDays;
+    }
+
+    /**
+     * Appends a balance change, snapshotting the balance when the entry id falls on the snapshot interval.
+     * The caller must already have applied the change to the user row.
+     *
+     * @param userId       the user whose balance changed
+     * @param entryType    what changed it
+     * @param referenceId  the order or payment id
+     * @param businessDate the order or payment date
+     * @param dueDelta     the change to the due amount
+     * @param advanceDelta the change to the advance
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(final String userId, final LedgerEntryType entryType, final String referenceId,
+                       final LocalDate businessDate, final Money dueDelta, final Money advanceDelta) {
+        record(userId, List.of(new Change(entryType, referenceId, businessDate, dueDelta, advanceDelta)));
+    }
+
+    /**
+     * Appends several changes that were applied to the user row in one update. A snapshot, if one falls
+     * due, is taken after the last of them, since the user row already holds the result of all of them.
+     *
+     * @param userId  the user whose balance changed
+     * @param changes the changes, in the order they apply
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(final String userId, final List<Change> changes) {
+        final LocalDateTime now = LocalDateTime.now();
+        boolean snapshotDue = false;
+        for (final Change change : changes) {
+            final long entryId = ledgerRepository.append(userId, change.entryType(), change.referenceId(),
+                    change.businessDate(), change.dueDelta(), change.advanceDelta(), now);
+            snapshotDue |= entryId % entriesPerSnapshot == 0;
+        }
+        if (snapshotDue) {
+            ledgerRepository.snapshot(userId, now);
+        }
+    }
+
+    /**
+     * Snapshots every user with ledger entries since the start of the previous day, each in its own
+     * transaction under the user's row lock.
+     */
+    @Scheduled(cron = "${app.balance.snapshot.daily-cron:0 10 0 * * *}")
+    public void snapshotDaily() {
+        final List<String> userIds = ledgerRepository.findUsersWithEntriesSince(
+                LocalDate.now().minusDays(1).atStartOfDay());
+        int taken = 0;
+        for (final String userId : userIds) {
+            try {
+                final Boolean written = transactionTemplate.execute(status ->
+                        userRepository.lockDueAmount(userId) != null
+                                && ledgerRepository.snapshot(userId, LocalDateTime.now()));
+                if (Boolean.TRUE.equals(written)) {
+                    taken++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Daily balance snapshot failed for userId {}", userId, e);
+            }
+        }
+        log.info("Daily balance snapshots: {} taken for {} active users", taken, userIds.size());
+    }
+
+    /**
+     * Retrieves a user's balance at the end of the given day.
+     *
+     * @param userId the user
+     * @param date   the day
+     * @return an ApiResponse containing the balance
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse<BalanceDto> getBalanceAt(final String userId, final LocalDate date) {
+        if (date == null) {
+            throw new IllegalArgumentException("date is required");
+        }
+        if (!userRepository.existsById(userId)) {
+            return new ApiResponse<>(false, "User not found", null, "User not found");
+        }
+        final LocalDateTime end = date.plusDays(1).atStartOfDay();
+        final BalanceSnapshotRow start = startingPoint(userId, end);
+        long due = start.dueAmountMinor();
+        long advance = start.advanceMinor();
+        for (final LedgerEntryRow entry : ledgerRepository.findEntries(userId, start.lastEntryId(), end)) {
+            due += entry.dueDeltaMinor();
+            advance += entry.advanceDeltaMinor();
+        }
+        return new ApiResponse<>(true, "Balance retrieved successfully",
+                new BalanceDto(userId, date, Money.ofMinor(due), Money.ofMinor(advance)), null);
+    }
+
+    /**
+     * Retrieves a user's statement: the balance at the start of the period, every entry booked in it with
+     * the running balance, and the balance at its end.
+     *
+     * @param userId the user
+     * @param from   the first day
+     * @param to     the last day, inclusive
+     * @return an ApiResponse containing the statement
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse<BalanceStatementDto> getStatement(final String userId, final LocalDate from, final LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        if (ChronoUnit.DAYS.between(from, to) + 1 > maxStatementDays) {
+            throw new IllegalArgumentException("Statements cover at most " + maxStatementDays + " days");
+        }
+        if (!userRepository.existsById(userId)) {
+            return new ApiResponse<>(false, "User not found", null, "User not found");
+        }
+
+        final LocalDateTime periodStart = from.atStartOfDay();
+        final BalanceSnapshotRow start = startingPoint(userId, periodStart);
+        long due = start.dueAmountMinor();
+        long advance = start.advanceMinor();
+        long openingDue = due;
+        long openingAdvance = advance;
+        // One read covers the replay up to the period and the period itself.
+        final List<LedgerEntryDto> entries = new ArrayList<>();
+        for (final LedgerEntryRow entry : ledgerRepository.findEntries(userId, start.lastEntryId(),
+                to.plusDays(1).atStartOfDay())) {
+            due += entry.dueDeltaMinor();
+            advance += entry.advanceDeltaMinor();
+            if (entry.recordedAt().isBefore(periodStart)) {
+                openingDue = due;
+                openingAdvance = advance;
+                continue;
+            }
+            entries.add(new LedgerEntryDto(entry.entryId(), entry.entryType(), entry.referenceId(),
+                    entry.businessDate(), Money.ofMinor(entry.dueDeltaMinor()), Money.ofMinor(entry.advanceDeltaMinor()),
+                    entry.recordedAt(), Money.ofMinor(due), Money.ofMinor(advance)));
+        }
+        log.info("Statement for userId {} from {} to {}: {} entries", userId, from, to, entries.size());
+        return new ApiResponse<>(true, "Statement retrieved successfully",
+                new BalanceStatementDto(userId, from, to, Money.ofMinor(openingDue), Money.ofMinor(openingAdvance),
+                        entries, Money.ofMinor(due), Money.ofMinor(advance)), null);
+    }
+
+    // The latest snapshot before the given time. A user without one started from zero after the ledger
+    // was introduced; a user whose opening snapshot is later has no history that far back.
+    private BalanceSnapshotRow startingPoint(final String userId, final LocalDateTime before) {
+        return ledgerRepository.findSnapshotBefore(userId, before).orElseGet(() -> {
+            ledgerRepository.findOpeningSnapshot(userId).ifPresent(opening -> {
+                throw new IllegalArgumentException("Balance history for user " + userId + " starts at "
+                        + opening.snapshotAt());
+            });
+            return new BalanceSnapshotRow(0L, before, 0L, 0L);
+        });
+    }
+
+    /**
+     * One balance change to append: what caused it and how it moved the due amount and advance.
+     */
+    public record Change(LedgerEntryType entryType, String referenceId, LocalDate businessDate, Money dueDelta,
+                         Money advanceDelta) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.LedgerEntryType;
+import com.example.Agency.repository.UserRepository;
+import com.example.Agency.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies changes to a user's due amount and advance as atomic updates in the database, and records
+ * each change in the balance ledger.
+ * <p>
+ * Orders and payments that stay within the due amount do not read the balance first, so an order and a
+ * payment for the same shop can commit concurrently without one overwriting the other and without
+ * locking the user up front. Only a payment the guarded update cannot apply, an overpayment or one
+ * against a due amount stored just below its paise value, locks the row to learn how much of it goes to
+ * the advance. All methods join the caller's transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceService {
+
+    private final UserRepository userRepository;
+    private final BalanceLedgerService balanceLedgerService;
+
+    /**
+     * Adds the amount of an order to the user's due amount.
+     *
+     * @param userId    the user to charge
+     * @param amount    the order amount
+     * @param orderId   the order, recorded on the ledger entry
+     * @param orderDate the order date
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addToDue(final String userId, final Money amount, final String orderId, final LocalDate orderDate) {
+        if (userRepository.increaseDueAmount(userId, amount.toDouble()) == 0) {
+            throw new RuntimeException("User with ID " + userId + " not found");
+        }
+        balanceLedgerService.record(userId, LedgerEntryType.ORDER, orderId, orderDate, amount, Money.ZERO);
+    }
+
+    /**
+     * Applies a regular payment. The due amount is reduced; if the payment exceeds it,
+     * the due amount becomes zero and the excess is added to the advance.
+     *
+     * @param userId      the paying user
+     * @param amountPaid  the payment amount
+     * @param paymentId   the payment, recorded on the ledger entry
+     * @param paymentDate the payment date
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyPayment(final String userId, final Money amountPaid, final String paymentId,
+                             final LocalDate paymentDate) {
+        applyPayments(userId, List.of(new PaymentPosting(paymentId, paymentDate, amountPaid)));
+    }
+
+    /**
+     * Applies several payments of one user with a single balance update. The ledger gets one entry per
+     * payment, as if they had been applied one after another in the given order.
+     *
+     * @param userId   the paying user
+     * @param payments the payments
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyPayments(final String userId, final List<PaymentPosting> payments) {
+        Money total = Money.ZERO;
+        for (final PaymentPosting payment : payments) {
+            total = total.plus(payment.amount());
+        }
+        final List<BalanceLedgerService.Change> changes = new ArrayList<>(payments.size());
+        if (userRepository.decreaseDueAmount(userId, total.toDouble()) == 1) {
+            for (final PaymentPosting payment : payments) {
+                changes.add(change(payment, Money.ZERO.minus(payment.amount()), Money.ZERO));
+            }
+            balanceLedgerService.record(userId, changes);
+            return;
+        }
+
+        // The due amount is below the total, or the user does not exist, or the stored DOUBLE has drifted just
+        // below its paise value. With the row locked the due amount cannot move, so the split into due and
+        // advance is computed from the locked value and written as absolute figures.
+        final Double lockedDue = userRepository.lockDueAmount(userId);
+        if (lockedDue == null) {
+            throw new RuntimeException("User not found with ID: " + userId);
+        }
+        Money due = Money.of(lockedDue);
+        log.debug("Payments of {} for userId {} against a due amount of {}", total, userId, due);
+        final Money toDue = total.compareTo(due) <= 0 ? total : due;
+        if (userRepository.applyLockedPayment(userId, due.minus(toDue).toDouble(), total.minus(toDue).toDouble()) != 1) {
+            throw new IllegalStateException("Could not apply payment for userId " + userId);
+        }
+        for (final PaymentPosting payment : payments) {
+            final Money paidToDue = payment.amount().compareTo(due) <= 0 ? payment.amount() : due;
+            changes.add(change(payment, Money.ZERO.minus(paidToDue), payment.amount().minus(paidToDue)));
+            due = due.minus(paidToDue);
+        }
+        balanceLedgerService.record(userId, changes);
+    }
+
+    /**
+     * Settles part of the due amount from the user's advance.
+     *
+     * @param userId      the user
+     * @param amount      the amount to move from advance to due
+     * @param paymentId   the payment, recorded on the ledger entry
+     * @param paymentDate the payment date
+     * @return false if the due amount or advance no longer covers the amount
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean settleFromAdvance(final String userId, final Money amount, final String paymentId,
+                                     final LocalDate paymentDate) {
+        if (userRepository.settleDueFromAdvance(userId, amount.toDouble()) != 1) {
+            return false;
+        }
+        balanceLedgerService.record(userId, LedgerEntryType.ADVANCE_SETTLEMENT, paymentId, paymentDate,
+                Money.ZERO.minus(amount), Money.ZERO.minus(amount));
+        return true;
+    }
+
+    private static BalanceLedgerService.Change change(final PaymentPosting payment, final Money dueDelta,
+                                                      final Money advanceDelta) {
+        return new BalanceLedgerService.Change(LedgerEntryType.PAYMENT, payment.paymentId(), payment.paymentDate(),
+                dueDelta, advanceDelta);
+    }
+
+    /**
+     * A payment to apply: its id and date go on the ledger entry.
+     */
+    public record PaymentPosting(String paymentId, LocalDate paymentDate, Money amount) {
+    }
+}
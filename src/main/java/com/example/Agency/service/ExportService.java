@@ -0,0 +1,212 @@
+package com.example.Agency.service;
+
+import com.example.Agency.util.Money;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams full order and payment exports straight from the database to the response.
+ * <p>
+ * Rows are read through a forward-only cursor with MySQL's streaming fetch size, so the driver hands
+ * over one row at a time instead of buffering the result set, and each row is written to the
+ * JsonGenerator as soon as it is read. Heap use does not depend on the size of the export.
+ * The JSON has the same shape as the paged listing endpoints, wrapped in the usual ApiResponse envelope.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    // Tells MySQL Connector/J to stream rows one by one rather than read the whole result into memory.
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    // Lines of the same order are adjacent, so orders can be assembled on the fly.
+    private static final String ORDER_EXPORT_SQL = "SELECT o.order_id, u.user_id, u.shop_name, " +
+            "DATE_FORMAT(o.order_date, '%Y-%m-%d') AS order_date, " +
+            "DATE_FORMAT(o.order_time, '%H:%i:%s') AS order_time, " +
+            "o.total_amount, o.cost_amount, " +
+            "p.product_name, od.quantity, od.price, od.cost, od.subtotal, od.cost_subtotal " +
+            "FROM orders o " +
+            "JOIN user u ON o.user_id = u.user_id " +
+            "JOIN order_details od ON o.order_id = od.order_id " +
+            "JOIN product p ON od.product_id = p.product_id " +
+            "ORDER BY o.order_date DESC, o.order_id DESC";
+
+    private static final String PAYMENT_EXPORT_SQL = "SELECT pm.payment_id, u.user_id, u.user_name, u.shop_name, " +
+            "DATE_FORMAT(pm.payment_date, '%Y-%m-%d') AS payment_date, pm.amount_paid, pm.recived_by " +
+            "FROM payments pm " +
+            "JOIN user u ON pm.user_id = u.user_id " +
+            "ORDER BY pm.payment_date DESC, pm.payment_id DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes every order with its product lines to the given stream.
+     *
+     * @param out the response stream; it is not closed
+     * @throws IOException if writing to the stream fails
+     */
+    public void exportOrders(final OutputStream out) throws IOException {
+        try (JsonGenerator json = openEnvelope(out, "Orders exported successfully!")) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("orders");
+
+            final OrderRowWriter writer = new OrderRowWriter(json);
+            stream(ORDER_EXPORT_SQL, writer);
+            writer.finish();
+
+            json.writeEndArray();
+            json.writeNumberField("grandTotal", Money.toDouble(writer.grandTotal));
+            json.writeNumberField("costGrandTotal", Money.toDouble(writer.costGrandTotal));
+            json.writeEndObject();
+            closeEnvelope(json);
+            log.info("Exported {} orders", writer.orderCount);
+        }
+    }
+
+    /**
+     * Writes the full payment history to the given stream.
+     *
+     * @param out the response stream; it is not closed
+     * @throws IOException if writing to the stream fails
+     */
+    public void exportPaymentHistory(final OutputStream out) throws IOException {
+        try (JsonGenerator json = openEnvelope(out, "Payment history exported successfully")) {
+            json.writeStartArray();
+            final long[] count = {0L};
+            stream(PAYMENT_EXPORT_SQL, rs -> {
+                try {
+                    json.writeStartObject();
+                    json.writeStringField("paymentId", rs.getString(1));
+                    json.writeStringField("userId", rs.getString(2));
+                    json.writeStringField("userName", rs.getString(3));
+                    json.writeStringField("shopName", rs.getString(4));
+                    json.writeStringField("paymentDate", rs.getString(5));
+                    json.writeNumberField("amountPaid", Money.toDouble(Money.toMinor(rs.getDouble(6))));
+                    json.writeStringField("receivedBy", rs.getString(7));
+                    json.writeEndObject();
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            closeEnvelope(json);
+            log.info("Exported {} payments", count[0]);
+        }
+    }
+
+    private void stream(final String sql, final RowCallbackHandler handler) throws IOException {
+        final PreparedStatementCreator streaming = connection -> {
+            final PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAMING_FETCH_SIZE);
+            return ps;
+        };
+        try {
+            jdbcTemplate.query(streaming, handler);
+        } catch (UncheckedIOException e) {
+            // The client went away; stop reading rather than draining the cursor.
+            throw e.getCause();
+        }
+    }
+
+    private JsonGenerator openEnvelope(final OutputStream out, final String message) throws IOException {
+        final JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartObject();
+        json.writeBooleanField("success", true);
+        json.writeStringField("message", message);
+        json.writeFieldName("data");
+        return json;
+    }
+
+    private void closeEnvelope(final JsonGenerator json) throws IOException {
+        json.writeNullField("error");
+        json.writeEndObject();
+    }
+
+    /**
+     * Turns consecutive order lines into order objects, closing each order when the next one starts.
+     */
+    private static final class OrderRowWriter implements RowCallbackHandler {
+
+        private final JsonGenerator json;
+        private String currentOrderId;
+        private long totalAmount;
+        private long costAmount;
+        private long grandTotal;
+        private long costGrandTotal;
+        private long orderCount;
+
+        OrderRowWriter(final JsonGenerator json) {
+            this.json = json;
+        }
+
+        @Override
+        public void processRow(final ResultSet rs) throws SQLException {
+            try {
+                final String orderId = rs.getString(1);
+                if (!orderId.equals(currentOrderId)) {
+                    finish();
+                    startOrder(rs, orderId);
+                }
+                json.writeStartObject();
+                json.writeStringField("productName", rs.getString(8));
+                json.writeNumberField("quantity", rs.getInt(9));
+                json.writeNumberField("price", Money.toDouble(Money.toMinor(rs.getDouble(10))));
+                json.writeNumberField("cost", Money.toDouble(Money.toMinor(rs.getDouble(11))));
+                json.writeNumberField("subtotal", Money.toDouble(Money.toMinor(rs.getDouble(12))));
+                json.writeNumberField("costSubtotal", Money.toDouble(Money.toMinor(rs.getDouble(13))));
+                json.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void startOrder(final ResultSet rs, final String orderId) throws SQLException, IOException {
+            currentOrderId = orderId;
+            totalAmount = Money.toMinor(rs.getDouble(6));
+            costAmount = Money.toMinor(rs.getDouble(7));
+            grandTotal += totalAmount;
+            costGrandTotal += costAmount;
+            orderCount++;
+
+            json.writeStartObject();
+            json.writeStringField("orderId", orderId);
+            json.writeStringField("userId", rs.getString(2));
+            json.writeStringField("shopName", rs.getString(3));
+            json.writeStringField("orderDate", rs.getString(4));
+            json.writeStringField("orderTime", rs.getString(5));
+            json.writeArrayFieldStart("products");
+        }
+
+        /**
+         * Closes the order currently being written, if any.
+         */
+        void finish() throws IOException {
+            if (currentOrderId == null) {
+                return;
+            }
+            json.writeEndArray();
+            json.writeNumberField("totalAmount", Money.toDouble(totalAmount));
+            json.writeNumberField("costAmount", Money.toDouble(costAmount));
+            json.writeEndObject();
+            currentOrderId = null;
+        }
+    }
+}
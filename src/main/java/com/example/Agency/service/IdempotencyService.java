@@ -0,0 +1,112 @@
+package com.example.Agency.service;
+
+import com.example.Agency.model.IdempotencyRecord;
+import com.example.Agency.repository.IdempotencyRecordRepository;
+import com.example.Agency.util.BoundedTtlCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the responses of completed POSTs that carried an Idempotency-Key.
+ * <p>
+ * Recent responses are kept in a bounded in-memory cache and also written to the
+ * idempotency_record table, so retries are answered after a restart and for as long as the TTL allows.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final BoundedTtlCache<String, StoredResponse> cache;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Duration ttl;
+
+    public IdempotencyService(final IdempotencyRecordRepository idempotencyRecordRepository,
+                              @Value("${app.idempotency.max-entries:10000}") final int maxEntries,
+                              @Value("${app.idempotency.ttl:24h}") final Duration ttl) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.cache = new BoundedTtlCache<>(maxEntries, ttl);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Builds the storage key for a client key. Keys are scoped to the caller and endpoint so that
+     * two clients, or two endpoints, never share a stored response.
+     */
+    public String recordKey(final String principal, final String method, final String path, final String idempotencyKey) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final String scoped = principal + '\n' + method + '\n' + path + '\n' + idempotencyKey;
+            return HexFormat.of().formatHex(digest.digest(scoped.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<StoredResponse> find(final String recordKey) {
+        final Optional<StoredResponse> cached = cache.get(recordKey);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        final Instant cutoff = Instant.now().minus(ttl);
+        final Optional<StoredResponse> stored = idempotencyRecordRepository.findById(recordKey)
+                .filter(record -> record.getCreatedAt().isAfter(cutoff))
+                .map(record -> new StoredResponse(record.getStatus(), record.getContentType(), record.getBody(),
+                        record.getRequestHash()));
+        stored.ifPresent(response -> cache.put(recordKey, response));
+        return stored;
+    }
+
+    /**
+     * Marks the key as being processed.
+     *
+     * @return false if a request with the same key is already running
+     */
+    public boolean begin(final String recordKey) {
+        return inFlight.add(recordKey);
+    }
+
+    public void end(final String recordKey) {
+        inFlight.remove(recordKey);
+    }
+
+    public void store(final String recordKey, final String requestPath, final StoredResponse response) {
+        cache.put(recordKey, response);
+        try {
+            idempotencyRecordRepository.save(new IdempotencyRecord(recordKey, requestPath, response.requestHash(),
+                    response.status(), response.contentType(), response.body(), Instant.now()));
+        } catch (DataAccessException e) {
+            // The write itself succeeded; losing the durable copy only narrows the retry window.
+            log.warn("Could not persist idempotency record for {}: {}", requestPath, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        cache.evictExpired();
+        final int purged = idempotencyRecordRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    /**
+     * A stored response and the SHA-256 of the request body it answered; the hash is null for records
+     * stored before hashes were kept.
+     */
+    public record StoredResponse(int status, String contentType, byte[] body, String requestHash) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.Agency.service;
+
+import com.example.Agency.model.Orders;
+import com.example.Agency.model.User;
+import com.example.Agency.repository.IntakeTicketRepository;
+import com.example.Agency.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Commits many order groups in one transaction with a single user lookup.
+ * <p>
+ * If the shared transaction fails, every group is retried in its own transaction so that one bad
+ * order only fails itself. Used by the bulk ingestion endpoint and the write-behind intake queue; the
+ * intake tickets of a group are recorded in the transaction that writes it.
+ * <p>
+ * A failure of the database itself, such as a lost connection or a lock timeout, says nothing about the
+ * order; it is returned as a retryable result, and the groups not yet tried are not attempted.
+ */
+@Slf4j
+@Service
+public class OrderChunkWriter {
+
+    private final OrderService orderService;
+    private final UserRepository userRepository;
+    private final IntakeTicketRepository intakeTicketRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderChunkWriter(final OrderService orderService,
+                            final UserRepository userRepository,
+                            final IntakeTicketRepository intakeTicketRepository,
+                            final PlatformTransactionManager transactionManager) {
+        this.orderService = orderService;
+        this.userRepository = userRepository;
+        this.intakeTicketRepository = intakeTicketRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Writes the groups and returns one result per group, in the same order.
+     *
+     * @param groups  the order groups to apply
+     * @param catalog the product catalog snapshot used to price every group
+     * @return the written orderId or the error for each group, retryable when the database could not be reached
+     */
+    public List<Result> write(final List<? extends OrderGroup> groups, final ProductCatalog.Snapshot catalog) {
+        if (groups.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return transactionTemplate.execute(status -> applyAll(groups, catalog));
+        } catch (RuntimeException e) {
+            if (isRetryable(e)) {
+                log.warn("Order writes unavailable, {} orders left to retry: {}", groups.size(), e.getMessage());
+                return groups.stream().map(group -> Result.retryable(e.getMessage())).toList();
+            }
+            log.warn("Order chunk of {} orders failed, retrying individually: {}", groups.size(), e.getMessage());
+        }
+
+        final List<Result> results = new ArrayList<>(groups.size());
+        RuntimeException unavailable = null;
+        for (final OrderGroup group : groups) {
+            if (unavailable != null) {
+                results.add(Result.retryable(unavailable.getMessage()));
+                continue;
+            }
+            try {
+                results.add(transactionTemplate.execute(status -> applyAll(List.of(group), catalog)).get(0));
+            } catch (RuntimeException ex) {
+                if (isRetryable(ex)) {
+                    log.warn("Order writes unavailable, {} orders left to retry: {}",
+                            groups.size() - results.size(), ex.getMessage());
+                    unavailable = ex;
+                    results.add(Result.retryable(ex.getMessage()));
+                } else {
+                    log.warn("Order for user {} failed: {}", group.order().getUserId(), ex.getMessage());
+                    results.add(Result.failed(ex.getMessage()));
+                }
+            }
+        }
+        return results;
+    }
+
+    // Failures of the database or the transaction rather than of the order's data.
+    private static boolean isRetryable(final RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private List<Result> applyAll(final List<? extends OrderGroup> groups, final ProductCatalog.Snapshot catalog) {
+        final Set<String> userIds = groups.stream().map(group -> group.order().getUserId()).collect(Collectors.toSet());
+        final Map<String, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity()));
+
+        final List<Result> results = new ArrayList<>(groups.size());
+        for (final OrderGroup group : groups) {
+            final User user = users.get(group.order().getUserId());
+            if (user == null) {
+                results.add(Result.failed("User with ID " + group.order().getUserId() + " not found"));
+                continue;
+            }
+            final Orders saved = orderService.applyOrder(user, group.order(), group.details(), catalog);
+            if (!group.ticketIds().isEmpty()) {
+                intakeTicketRepository.markApplied(group.ticketIds(), saved.getOrderId(), LocalDateTime.now());
+            }
+            results.add(Result.succeeded(saved.getOrderId()));
+        }
+        return results;
+    }
+
+    /**
+     * The outcome of one group; a retryable failure did not reach the order and may succeed if written again.
+     */
+    public record Result(String orderId, String error, boolean retryable) {
+
+        static Result succeeded(final String orderId) {
+            return new Result(orderId, null, false);
+        }
+
+        static Result failed(final String error) {
+            return new Result(null, error, false);
+        }
+
+        static Result retryable(final String error) {
+            return new Result(null, error, true);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
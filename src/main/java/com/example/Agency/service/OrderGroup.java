@@ -0,0 +1,24 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.OrderDetailDto;
+import com.example.Agency.dto.OrderDto;
+
+import java.util.List;
+
+/**
+ * Order lines for one user, date and shift, ready to be merged into that order by {@link OrderChunkWriter}.
+ */
+public interface OrderGroup {
+
+    OrderDto order();
+
+    List<OrderDetailDto> details();
+
+    /**
+     * Intake tickets whose lines make up this group, recorded as applied in the transaction that writes
+     * them; empty for groups that did not come through the intake queue.
+     */
+    default List<String> ticketIds() {
+        return List.of();
+    }
+}
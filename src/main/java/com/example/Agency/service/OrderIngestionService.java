@@ -0,0 +1,186 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.OrderDetailDto;
+import com.example.Agency.dto.OrderDto;
+import com.example.Agency.dto.response.BatchItemResult;
+import com.example.Agency.dto.reuests.CreateOrderRequest;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Ingests many {@link CreateOrderRequest}s posted in one JSON array.
+ * <p>
+ * The body is parsed item by item, items for the same user, date and shift are merged into one order,
+ * and the merged orders are committed in chunked transactions through {@link OrderChunkWriter}.
+ * The whole batch is priced against one catalog snapshot and users are loaded once per chunk.
+ */
+@Slf4j
+@Service
+public class OrderIngestionService {
+
+    private final OrderChunkWriter orderChunkWriter;
+    private final ProductCatalog productCatalog;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public OrderIngestionService(final OrderChunkWriter orderChunkWriter,
+                                 final ProductCatalog productCatalog,
+                                 final ObjectMapper objectMapper,
+                                 @Value("${app.orders.batch-chunk-size:50}") final int chunkSize) {
+        this.orderChunkWriter = orderChunkWriter;
+        this.productCatalog = productCatalog;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses a JSON array of order requests from the stream and applies them in chunks.
+     *
+     * @param body the request body containing a JSON array of CreateOrderRequest objects
+     * @return an ApiResponse with one result per submitted item, in submission order
+     * @throws IOException if the body cannot be read
+     */
+    public ApiResponse<List<BatchItemResult>> ingest(final InputStream body) throws IOException {
+        final ProductCatalog.Snapshot catalog = productCatalog.snapshot();
+
+        final List<BatchItemResult> results = new ArrayList<>();
+        final Map<OrderKey, PendingOrder> pending = new LinkedHashMap<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Request body must be a JSON array of orders");
+            }
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    final int index = results.size();
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        results.add(BatchItemResult.failed(index, "Order must be a JSON object"));
+                        continue;
+                    }
+                    final JsonNode node = parser.readValueAsTree();
+
+                    final CreateOrderRequest request;
+                    try {
+                        request = objectMapper.treeToValue(node, CreateOrderRequest.class);
+                    } catch (JsonProcessingException e) {
+                        results.add(BatchItemResult.failed(index, "Malformed order: " + e.getOriginalMessage()));
+                        continue;
+                    }
+
+                    final String invalid = validate(request, catalog);
+                    if (invalid != null) {
+                        results.add(BatchItemResult.failed(index, invalid));
+                        continue;
+                    }
+
+                    // Filled in when the order's chunk is written
+                    results.add(null);
+                    final OrderDto order = request.getOrder();
+                    pending.computeIfAbsent(new OrderKey(order.getUserId(), order.getOrderDate(), order.isOrderShift()),
+                                    key -> new PendingOrder(order))
+                            .add(index, request.getOrderDetails());
+
+                    if (pending.size() >= chunkSize) {
+                        flush(pending.values(), catalog, results);
+                        pending.clear();
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // The rest of the stream is unreadable; keep what was parsed so far and report the cut-off point.
+                log.warn("Order batch truncated after {} items: {}", results.size(), e.getOriginalMessage());
+                results.add(BatchItemResult.failed(results.size(), "Malformed JSON: " + e.getOriginalMessage()));
+            }
+        }
+        flush(pending.values(), catalog, results);
+
+        final long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        log.info("Order batch processed: {} items, {} failed", results.size(), failed);
+        return new ApiResponse<>(failed == 0, "Processed " + results.size() + " orders, " + failed + " failed", results, null);
+    }
+
+    private String validate(final CreateOrderRequest request, final ProductCatalog.Snapshot catalog) {
+        final OrderDto order = request.getOrder();
+        if (order == null || order.getUserId() == null || order.getOrderDate() == null) {
+            return "Order, userId and orderDate are required";
+        }
+        if (request.getOrderDetails() == null || request.getOrderDetails().isEmpty()) {
+            return "Order must contain at least one order detail";
+        }
+        for (final OrderDetailDto detail : request.getOrderDetails()) {
+            if (detail.getQuantity() == null || detail.getQuantity() <= 0) {
+                return "Quantity must be positive for product " + detail.getProductId();
+            }
+            if (catalog.find(detail.getProductId()) == null) {
+                return "Product with ID " + detail.getProductId() + " not found";
+            }
+        }
+        return null;
+    }
+
+    private void flush(final Collection<PendingOrder> orders, final ProductCatalog.Snapshot catalog,
+                       final List<BatchItemResult> results) {
+        final List<PendingOrder> groups = new ArrayList<>(orders);
+        final List<OrderChunkWriter.Result> written = orderChunkWriter.write(groups, catalog);
+        for (int i = 0; i < groups.size(); i++) {
+            final OrderChunkWriter.Result result = written.get(i);
+            if (result.isSuccess()) {
+                groups.get(i).succeed(results, result.orderId());
+            } else {
+                groups.get(i).fail(results, result.error());
+            }
+        }
+    }
+
+    private record OrderKey(String userId, LocalDate orderDate, boolean orderShift) {
+    }
+
+    /**
+     * Order lines collected for one user, date and shift, with the batch positions they came from.
+     */
+    private static final class PendingOrder implements OrderGroup {
+        private final OrderDto order;
+        private final List<OrderDetailDto> details = new ArrayList<>();
+        private final List<Integer> indexes = new ArrayList<>();
+
+        private PendingOrder(final OrderDto order) {
+            this.order = order;
+        }
+
+        @Override
+        public OrderDto order() {
+            return order;
+        }
+
+        @Override
+        public List<OrderDetailDto> details() {
+            return details;
+        }
+
+        private void add(final int index, final List<OrderDetailDto> lines) {
+            indexes.add(index);
+            details.addAll(lines);
+        }
+
+        private void succeed(final List<BatchItemResult> results, final String orderId) {
+            indexes.forEach(index -> results.set(index, BatchItemResult.succeeded(index, orderId)));
+        }
+
+        private void fail(final List<BatchItemResult> results, final String error) {
+            indexes.forEach(index -> results.set(index, BatchItemResult.failed(index, error)));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.reuests.CreateOrderRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only JSON-lines journal backing the order intake queue.
+ * <p>
+ * Every accepted request is forced to disk before it is acknowledged, and a completion line is
+ * appended once its order has been committed. On startup the requests without a completion line are
+ * handed back for replay. The file is truncated whenever nothing is outstanding.
+ * <p>
+ * A crash between the database commit and the completion line hands those requests back on the next
+ * start; OrderIntakeService drops the ones the intake_ticket table shows as already applied.
+ */
+final class OrderIntakeJournal implements Closeable {
+
+    private static final String ACCEPTED = "ACCEPTED";
+    private static final String COMPLETED = "COMPLETED";
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private FileChannel channel;
+    private int outstanding;
+
+    OrderIntakeJournal(final Path file, final ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the journal, rewrites it with only the outstanding requests and opens it for appending.
+     *
+     * @return outstanding requests keyed by ticket id, in acceptance order
+     */
+    synchronized Map<String, CreateOrderRequest> recover() throws IOException {
+        final Map<String, CreateOrderRequest> pending = new LinkedHashMap<>();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    final Entry entry;
+                    try {
+                        entry = objectMapper.readValue(line, Entry.class);
+                    } catch (IOException e) {
+                        // A torn last line from a crash mid-write; it was never acknowledged.
+                        continue;
+                    }
+                    if (ACCEPTED.equals(entry.type())) {
+                        pending.put(entry.ticketId(), entry.request());
+                    } else if (COMPLETED.equals(entry.type())) {
+                        entry.ticketIds().forEach(pending::remove);
+                    }
+                }
+            }
+        }
+
+        final Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (final Map.Entry<String, CreateOrderRequest> request : pending.entrySet()) {
+                out.write(encode(new Entry(ACCEPTED, request.getKey(), request.getValue(), null)));
+            }
+            out.force(true);
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        outstanding = pending.size();
+        return pending;
+    }
+
+    synchronized void accepted(final String ticketId, final CreateOrderRequest request) {
+        try {
+            channel.write(encode(new Entry(ACCEPTED, ticketId, request, null)));
+            channel.force(false);
+            outstanding++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal order intake request", e);
+        }
+    }
+
+    synchronized void completed(final Collection<String> ticketIds) {
+        try {
+            outstanding -= ticketIds.size();
+            if (outstanding == 0) {
+                channel.truncate(0);
+            } else {
+                channel.write(encode(new Entry(COMPLETED, null, null, List.copyOf(ticketIds))));
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal order intake completion", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer encode(final Entry entry) throws IOException {
+        final byte[] json = objectMapper.writeValueAsBytes(entry);
+        final ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+        buffer.put(json).put((byte) '\n').flip();
+        return buffer;
+    }
+
+    record Entry(String type, String ticketId, CreateOrderRequest request, List<String> ticketIds) {
+    }
+}
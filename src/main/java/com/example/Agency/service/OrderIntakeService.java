@@ -0,0 +1,312 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.IntakeStatus;
+import com.example.Agency.dto.OrderDetailDto;
+import com.example.Agency.dto.OrderDto;
+import com.example.Agency.dto.response.IntakeTicket;
+import com.example.Agency.dto.reuests.CreateOrderRequest;
+import com.example.Agency.repository.IntakeTicketRepository;
+import com.example.Agency.repository.row.AppliedTicketRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind intake for order lines, enabled with {@code app.orders.intake.enabled}.
+ * <p>
+ * Submitted lines are journaled, acknowledged with a ticket and merged in memory with any other lines
+ * still waiting for the same user, date and shift. Virtual-thread workers drain the waiting orders in
+ * batches through {@link OrderChunkWriter}, so a burst of submissions for one shop becomes a single
+ * write to its order and balance. Each key is always drained by the same worker, so one order is never
+ * written by two workers at once.
+ * <p>
+ * The ids of the tickets an order write covers are stored in the intake_ticket table in the same
+ * transaction, and journaled tickets found there on startup are marked applied instead of being replayed.
+ * Orders the writer could not reach the database for are requeued, and stay in the journal, after a
+ * backoff that doubles with each consecutive failure; only a definitive outcome completes a ticket.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.orders.intake.enabled", havingValue = "true")
+public class OrderIntakeService {
+
+    private final OrderChunkWriter orderChunkWriter;
+    private final ProductCatalog productCatalog;
+    private final IntakeTicketRepository intakeTicketRepository;
+    private final OrderIntakeJournal journal;
+    private final int batchSize;
+    private final Duration ticketRetention;
+    private final Duration appliedRetention;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+
+    private final Map<OrderKey, PendingOrder> pending = new ConcurrentHashMap<>();
+    private final Map<String, IntakeTicket> tickets = new ConcurrentHashMap<>();
+    private final List<BlockingQueue<OrderKey>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public OrderIntakeService(final OrderChunkWriter orderChunkWriter,
+                              final ProductCatalog productCatalog,
+                              final IntakeTicketRepository intakeTicketRepository,
+                              final ObjectMapper objectMapper,
+                              @Value("${app.orders.intake.journal-file}") final String journalFile,
+                              @Value("${app.orders.intake.workers:4}") final int workerCount,
+                              @Value("${app.orders.intake.batch-size:50}") final int batchSize,
+                              @Value("${app.orders.intake.ticket-retention:1h}") final Duration ticketRetention,
+                              @Value("${app.orders.intake.applied-retention:7d}") final Duration appliedRetention,
+                              @Value("${app.orders.intake.retry-backoff:1s}") final Duration retryBackoff,
+                              @Value("${app.orders.intake.max-retry-backoff:1m}") final Duration maxRetryBackoff) {
+        this.orderChunkWriter = orderChunkWriter;
+        this.productCatalog = productCatalog;
+        this.intakeTicketRepository = intakeTicketRepository;
+        this.journal = new OrderIntakeJournal(Path.of(journalFile), objectMapper);
+        this.batchSize = batchSize;
+        this.ticketRetention = ticketRetention;
+        this.appliedRetention = appliedRetention;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        for (int i = 0; i < workerCount; i++) {
+            queues.add(new LinkedBlockingQueue<>());
+        }
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        final Map<String, CreateOrderRequest> recovered = journal.recover();
+        final Instant now = Instant.now();
+        // Tickets committed before the crash but not yet journaled as completed.
+        final List<String> applied = new ArrayList<>();
+        for (final AppliedTicketRow row : intakeTicketRepository.findApplied(new ArrayList<>(recovered.keySet()))) {
+            recovered.remove(row.ticketId());
+            tickets.put(row.ticketId(),
+                    new IntakeTicket(row.ticketId(), IntakeStatus.APPLIED, row.orderId(), null, now, now));
+            applied.add(row.ticketId());
+        }
+        if (!applied.isEmpty()) {
+            journal.completed(applied);
+            log.info("Skipping {} journaled order intake requests that were already applied", applied.size());
+        }
+        recovered.forEach((ticketId, request) -> {
+            tickets.put(ticketId, new IntakeTicket(ticketId, IntakeStatus.QUEUED, null, null, now, null));
+            enqueue(List.of(ticketId), request.getOrder(), request.getOrderDetails());
+        });
+        if (!recovered.isEmpty()) {
+            log.info("Replaying {} journaled order intake requests", recovered.size());
+        }
+
+        running = true;
+        for (int i = 0; i < queues.size(); i++) {
+            final BlockingQueue<OrderKey> queue = queues.get(i);
+            workers.add(Thread.ofVirtual().name("order-intake-" + i).start(() -> drain(queue)));
+        }
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        running = false;
+        for (final Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (final Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        // Anything still waiting stays in the journal and is replayed on the next start.
+        journal.close();
+    }
+
+    /**
+     * Journals the request and queues its lines for the matching order.
+     *
+     * @param request the order request
+     * @return the ticket to poll for the outcome
+     */
+    public IntakeTicket submit(final CreateOrderRequest request) {
+        final OrderDto order = request.getOrder();
+        if (order == null || order.getUserId() == null || order.getOrderDate() == null) {
+            throw new IllegalArgumentException("Order, userId and orderDate are required");
+        }
+        if (request.getOrderDetails() == null || request.getOrderDetails().isEmpty()) {
+            throw new IllegalArgumentException("Order must contain at least one order detail");
+        }
+        for (final OrderDetailDto detail : request.getOrderDetails()) {
+            if (detail.getProductId() == null || detail.getQuantity() == null || detail.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Every order detail needs a productId and a positive quantity");
+            }
+        }
+
+        final String ticketId = UUID.randomUUID().toString();
+        journal.accepted(ticketId, request);
+        final IntakeTicket ticket = new IntakeTicket(ticketId, IntakeStatus.QUEUED, null, null, Instant.now(), null);
+        tickets.put(ticketId, ticket);
+        enqueue(List.of(ticketId), order, request.getOrderDetails());
+        return ticket;
+    }
+
+    public Optional<IntakeTicket> getTicket(final String ticketId) {
+        return Optional.ofNullable(tickets.get(ticketId));
+    }
+
+    private void enqueue(final List<String> ticketIds, final OrderDto order, final List<OrderDetailDto> details) {
+        final OrderKey key = new OrderKey(order.getUserId(), order.getOrderDate(), order.isOrderShift());
+        final boolean[] created = {false};
+        pending.compute(key, (k, existing) -> {
+            if (existing == null) {
+                existing = new PendingOrder(order);
+                created[0] = true;
+            }
+            existing.add(ticketIds, details);
+            return existing;
+        });
+        // Only a newly created entry needs a queue slot; later lines ride along until it is drained.
+        if (created[0]) {
+            queues.get(Math.floorMod(key.hashCode(), queues.size())).add(key);
+        }
+    }
+
+    private void drain(final BlockingQueue<OrderKey> queue) {
+        Duration backoff = retryBackoff;
+        while (running) {
+            final List<OrderKey> keys = new ArrayList<>(batchSize);
+            try {
+                final OrderKey first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                keys.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(keys, batchSize - 1);
+
+            final List<PendingOrder> orders = keys.stream()
+                    .map(pending::remove)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            List<PendingOrder> retry;
+            try {
+                retry = write(orders);
+            } catch (RuntimeException e) {
+                log.error("Order intake batch of {} orders failed: {}", orders.size(), e.getMessage());
+                retry = orders;
+            }
+            if (retry.isEmpty()) {
+                backoff = retryBackoff;
+            } else {
+                log.warn("Requeueing {} intake orders in {}", retry.size(), backoff);
+                retry.forEach(order -> enqueue(order.ticketIds, order.order, order.details));
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    // The requeued orders are still in the journal and are replayed on the next start.
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                final Duration doubled = backoff.multipliedBy(2);
+                backoff = doubled.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : doubled;
+            }
+        }
+    }
+
+    /**
+     * Writes the orders and completes the tickets of those with a definitive outcome.
+     *
+     * @return the orders to write again; their tickets stay queued and in the journal
+     */
+    private List<PendingOrder> write(final List<PendingOrder> orders) {
+        final List<OrderChunkWriter.Result> results = orderChunkWriter.write(orders, productCatalog.snapshot());
+        final Instant now = Instant.now();
+        final List<String> completed = new ArrayList<>();
+        final List<PendingOrder> retry = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            final OrderChunkWriter.Result result = results.get(i);
+            if (result.retryable()) {
+                retry.add(orders.get(i));
+                continue;
+            }
+            for (final String ticketId : orders.get(i).ticketIds) {
+                final IntakeTicket previous = tickets.get(ticketId);
+                tickets.put(ticketId, new IntakeTicket(ticketId,
+                        result.isSuccess() ? IntakeStatus.APPLIED : IntakeStatus.FAILED,
+                        result.orderId(), result.error(),
+                        previous != null ? previous.getAcceptedAt() : now, now));
+                completed.add(ticketId);
+            }
+        }
+        if (!completed.isEmpty()) {
+            try {
+                journal.completed(completed);
+            } catch (UncheckedIOException e) {
+                // The orders are committed; requeueing them would apply the lines twice.
+                log.error("Could not journal completion of {} intake tickets", completed.size(), e);
+            }
+        }
+        return retry;
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.intake.evict-interval:PT1M}")
+    public void evictFinishedTickets() {
+        final Instant cutoff = Instant.now().minus(ticketRetention);
+        tickets.values().removeIf(ticket -> ticket.getCompletedAt() != null && ticket.getCompletedAt().isBefore(cutoff));
+        final int purged = intakeTicketRepository.deleteAppliedBefore(LocalDateTime.now().minus(appliedRetention));
+        if (purged > 0) {
+            log.info("Purged {} applied intake tickets", purged);
+        }
+    }
+
+    private record OrderKey(String userId, LocalDate orderDate, boolean orderShift) {
+    }
+
+    /**
+     * Lines waiting for one order. Only mutated inside {@code pending.compute}, and no longer once removed.
+     */
+    private static final class PendingOrder implements OrderGroup {
+        private final OrderDto order;
+        private final List<OrderDetailDto> details = new ArrayList<>();
+        private final List<String> ticketIds = new ArrayList<>();
+
+        private PendingOrder(final OrderDto order) {
+            this.order = order;
+        }
+
+        @Override
+        public OrderDto order() {
+            return order;
+        }
+
+        @Override
+        public List<OrderDetailDto> details() {
+            return details;
+        }
+
+        @Override
+        public List<String> ticketIds() {
+            return ticketIds;
+        }
+
+        private void add(final List<String> tickets, final List<OrderDetailDto> lines) {
+            ticketIds.addAll(tickets);
+            details.addAll(lines);
+        }
+    }
+}
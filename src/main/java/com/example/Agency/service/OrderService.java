@@ -1,20 +1,24 @@
 package com.example.Agency.service;
 
 import com.example.Agency.dto.*;
-import com.example.Agency.model.OrderDetails;
+import com.example.Agency.event.OrdersChangedEvent;
 import com.example.Agency.model.Orders;
-import com.example.Agency.model.Product;
 import com.example.Agency.model.User;
-import com.example.Agency.repository.OrderDetailRepository;
+import com.example.Agency.repository.OrderQueryRepository;
 import com.example.Agency.repository.OrderRepository;
-import com.example.Agency.repository.ProductRepository;
+import com.example.Agency.repository.OrderWriteRepository;
+import com.example.Agency.repository.SalesAggregateRepository;
+import com.example.Agency.repository.row.OrderKeyRow;
+import com.example.Agency.repository.row.OrderLineRow;
 import com.example.Agency.repository.UserRepository;
+import com.example.Agency.util.KeysetCursor;
+import com.example.Agency.util.Money;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -24,10 +28,16 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class OrderService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
-    private final OrderDetailRepository orderDetailRepository;
-    private final ProductRepository productRepository;
+    private final OrderWriteRepository orderWriteRepository;
+    private final OrderQueryRepository orderQueryRepository;
+    private final SalesAggregateRepository salesAggregateRepository;
+    private final BalanceService balanceService;
+    private final ProductCatalog productCatalog;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Creates or updates an order based on the provided order and order detail DTOs.
@@ -39,113 +49,95 @@ public class OrderService {
      */
     @Transactional
     public ApiResponse<Orders> createOrUpdateOrder(OrderDto orderDTO, List<OrderDetailDto> orderDetailDTOs) {
-        final LocalTime currentTime = LocalTime.now();
-
         // Retrieve user; throw exception if not found.
         final User user = userRepository.findById(orderDTO.getUserId())
                 .orElseThrow(() -> new RuntimeException("User with ID " + orderDTO.getUserId() + " not found"));
 
-        // Attempt to find an existing order by user, date, and shift.
-        final Optional<Orders> existingOrderOpt = orderRepository.findByUserUserIdAndOrderDateAndOrderShift(
-                orderDTO.getUserId(), orderDTO.getOrderDate(), orderDTO.isOrderShift()
-        );
-
-        Orders order;
-        if (existingOrderOpt.isPresent()) {
-            order = existingOrderOpt.get();
-        } else {
-            // Create new order if not present.
-            order = new Orders();
-            order.setUser(user);
-            order.setOrderDate(orderDTO.getOrderDate());
-            order.setOrderTime(currentTime);
-            order.setOrderShift(orderDTO.isOrderShift());
-            order.setTotalAmount(0.0);
-            order.setCostAmount(0.0);
-            order = orderRepository.save(order); // persist initial order
-        }
-
-        // Retrieve products referenced in the order details.
-        final List<String> productIds = orderDetailDTOs.stream()
-                .map(OrderDetailDto::getProductId)
-                .collect(Collectors.toList());
+        // Prices come from the in-memory catalog, so no product query is needed.
+        final Orders createdOrUpdatedOrder = applyOrder(user, orderDTO, orderDetailDTOs, productCatalog.snapshot());
 
-        final Map<String, Product> productMap = productRepository.findAllById(productIds).stream()
-                .collect(Collectors.toMap(Product::getProductId, product -> product));
-
-        // Use Optional to handle possible null totals.
-        BigDecimal totalAmount = BigDecimal.valueOf(Optional.ofNullable(order.getTotalAmount()).orElse(0.0));
-        BigDecimal costAmount = BigDecimal.valueOf(Optional.ofNullable(order.getCostAmount()).orElse(0.0));
-        BigDecimal userDueAmount = BigDecimal.valueOf(Optional.ofNullable(user.getDueAmount()).orElse(0.0));
+        log.info("Order created/updated successfully for user ID: {}", orderDTO.getUserId());
+        return new ApiResponse<>(true, "Order created or updated successfully!", createdOrUpdatedOrder, null);
+    }
 
-        // Process each order detail.
+    /**
+     * Merges order lines into the user's order for the given date and shift, creating the order if needed.
+     * Must run inside a transaction; callers supply the already loaded user and a catalog snapshot so that
+     * batch callers can price many orders against the same catalog version.
+     * <p>
+     * The header and lines are written as native upserts against their unique keys, so nothing is read
+     * before writing and concurrent requests for the same order add up instead of racing to create it.
+     *
+     * @param user             the managed user placing the order
+     * @param orderDTO         the order data transfer object
+     * @param orderDetailDTOs  the list of order detail DTOs
+     * @param catalog          the product catalog snapshot used for pricing
+     * @return the created or updated order
+     */
+    Orders applyOrder(final User user, final OrderDto orderDTO, final List<OrderDetailDto> orderDetailDTOs,
+                      final ProductCatalog.Snapshot catalog) {
+        // Combine repeated products first so each line is upserted once; totals are accumulated in paise.
+        final Map<String, Integer> quantities = new LinkedHashMap<>();
         for (OrderDetailDto detailDTO : orderDetailDTOs) {
-            final Product product = productMap.get(detailDTO.getProductId());
-            if (product == null) {
-                throw new RuntimeException("Product with ID " + detailDTO.getProductId() + " not found");
+            try {
+                quantities.merge(detailDTO.getProductId(), detailDTO.getQuantity(), Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Quantity of product " + detailDTO.getProductId() + " is too large");
             }
+        }
 
-            final BigDecimal cost = BigDecimal.valueOf(product.getOriginalPrice());
-            final BigDecimal price = BigDecimal.valueOf(product.getUnitPrice());
-            final BigDecimal quantity = BigDecimal.valueOf(detailDTO.getQuantity());
-            final BigDecimal subtotal = price.multiply(quantity);
-            final BigDecimal costSubtotal = cost.multiply(quantity);
-
-            // Check if an OrderDetail already exists for this order and product.
-            final Optional<OrderDetails> existingOrderDetailOpt =
-                    orderDetailRepository.findByOrderOrderIdAndProductProductId(order.getOrderId(), detailDTO.getProductId());
-
-            OrderDetails orderDetail;
-            if (existingOrderDetailOpt.isPresent()) {
-                // Update the existing order detail.
-                orderDetail = existingOrderDetailOpt.get();
-                final int newQuantity = orderDetail.getQuantity() + detailDTO.getQuantity();
-                orderDetail.setQuantity(newQuantity);
-                final BigDecimal newQuantityBD = BigDecimal.valueOf(newQuantity);
-                orderDetail.setSubtotal(price.multiply(newQuantityBD).doubleValue());
-                orderDetail.setCostSubtotal(cost.multiply(newQuantityBD).doubleValue());
-            } else {
-                // Create a new order detail.
-                orderDetail = new OrderDetails();
-                orderDetail.setOrder(order);
-                orderDetail.setProduct(product);
-                orderDetail.setQuantity(detailDTO.getQuantity());
-                orderDetail.setPrice(price.doubleValue());
-                orderDetail.setCost(cost.doubleValue());
-                orderDetail.setSubtotal(subtotal.doubleValue());
-                orderDetail.setCostSubtotal(costSubtotal.doubleValue());
+        Money totalAmount = Money.ZERO;
+        Money costAmount = Money.ZERO;
+        final List<OrderWriteRepository.LineUpsert> lines = new ArrayList<>(quantities.size());
+        for (final Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            final ProductCatalog.CatalogProduct product = catalog.find(entry.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product with ID " + entry.getKey() + " not found");
             }
 
-            orderDetailRepository.save(orderDetail);
-
-            // Update totals.
-            userDueAmount = userDueAmount.add(subtotal);
-            totalAmount = totalAmount.add(subtotal);
-            costAmount = costAmount.add(costSubtotal);
+            final Money cost = product.originalPrice();
+            final Money price = product.unitPrice();
+            final int quantity = entry.getValue();
+            final Money subtotal;
+            final Money costSubtotal;
+            try {
+                subtotal = price.times(quantity);
+                costSubtotal = cost.times(quantity);
+                totalAmount = totalAmount.plus(subtotal);
+                costAmount = costAmount.plus(costSubtotal);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Order total for product " + product.productId() + " is too large");
+            }
+            lines.add(new OrderWriteRepository.LineUpsert(product.productId(), quantity, price.toDouble(),
+                    cost.toDouble(), subtotal.toDouble(), costSubtotal.toDouble()));
         }
 
-        // Update order totals and persist changes.
-        order.setTotalAmount(totalAmount.doubleValue());
-        order.setCostAmount(costAmount.doubleValue());
-        final Orders createdOrUpdatedOrder = orderRepository.save(order);
+        // Create the order or add to its totals, then upsert its lines as one JDBC batch.
+        final String orderId = orderWriteRepository.upsertOrder(user.getUserId(), orderDTO.getOrderDate(),
+                LocalTime.now(), orderDTO.isOrderShift(), totalAmount.toDouble(), costAmount.toDouble(),
+                catalog.version());
+        orderWriteRepository.upsertLines(orderId, lines);
+        salesAggregateRepository.add(orderDTO.getOrderDate(), orderDTO.isOrderShift(), user.getUserId(), lines);
 
-        // Update user's due amount.
-        user.setDueAmount(userDueAmount.doubleValue());
-        userRepository.save(user);
+        // Update user's due amount as an atomic delta so concurrent payments are not overwritten.
+        balanceService.addToDue(user.getUserId(), totalAmount, orderId, orderDTO.getOrderDate());
+        // Cached reports for this date and shift are dropped once the transaction commits.
+        eventPublisher.publishEvent(new OrdersChangedEvent(user.getUserId(), orderDTO.getOrderDate(), orderDTO.isOrderShift()));
 
-        log.info("Order created/updated successfully for user ID: {}", orderDTO.getUserId());
-        return new ApiResponse<>(true, "Order created or updated successfully!", createdOrUpdatedOrder, null);
+        return orderRepository.findById(orderId)
+                .orElseThrow(() -> new IllegalStateException("Order " + orderId + " missing after upsert"));
     }
 
     /**
-     * Retrieves all orders along with associated product information.
+     * Retrieves one page of orders along with associated product information, newest first.
      *
-     * @return an ApiResponse containing the GetOrdersDto with all orders
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit  the maximum number of orders in the page
+     * @return an ApiResponse containing the GetOrdersDto with the page of orders
      */
     @Transactional(Transactional.TxType.SUPPORTS)
-    public ApiResponse<GetOrdersDto> getAllOrders() {
-        final List<Object[]> results = orderRepository.findAllOrdersWithProductInfoNative();
-        final GetOrdersDto ordersDto = convertResultsToGetOrdersDto(results);
+    public ApiResponse<GetOrdersDto> getAllOrders(String cursor, int limit) {
+        final GetOrdersDto ordersDto = findOrderPage(null, null, null, null, cursor, limit);
         return new ApiResponse<>(true, "Orders retrieved successfully!", ordersDto, null);
     }
 
@@ -157,20 +149,20 @@ public class OrderService {
      */
     @Transactional(Transactional.TxType.SUPPORTS)
     public ApiResponse<OrderResponseDto> getOrdersByRetailerId(String userId) {
-        final List<Object[]> orderData = orderRepository.findOrdersByUserId(userId);
+        final List<OrderLineRow> orderData = orderQueryRepository.findOrderLinesByUserId(userId);
 
-        final List<UserOrderInfo> userOrderInfo = new ArrayList<>();
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        BigDecimal costAmount = BigDecimal.ZERO;
+        final List<UserOrderInfo> userOrderInfo = new ArrayList<>(orderData.size());
+        long totalAmount = 0L;
+        long costAmount = 0L;
 
-        for (final Object[] obj : orderData) {
-            final UserOrderInfo dto = getUserOrderInfo(obj);
+        for (final OrderLineRow row : orderData) {
+            final UserOrderInfo dto = getUserOrderInfo(row);
             // Assuming these totals are consistent across rows; otherwise, consider accumulating.
-            totalAmount = BigDecimal.valueOf(((Number) obj[9]).doubleValue());
-            costAmount = BigDecimal.valueOf(((Number) obj[10]).doubleValue());
+            totalAmount = row.totalAmountMinor();
+            costAmount = row.costAmountMinor();
             userOrderInfo.add(dto);
         }
-        final OrderResponseDto orderResponseDto = new OrderResponseDto(userOrderInfo, totalAmount.doubleValue(), costAmount.doubleValue());
+        final OrderResponseDto orderResponseDto = new OrderResponseDto(userOrderInfo, Money.ofMinor(totalAmount), Money.ofMinor(costAmount));
         return new ApiResponse<>(true, "Orders retrieved successfully!", orderResponseDto, null);
     }
 
@@ -181,79 +173,100 @@ public class OrderService {
      * @param shift     the shift indicator
      * @param startDate the start date for filtering
      * @param endDate   the end date for filtering
-     * @return an ApiResponse containing the GetOrdersDto with matching orders
+     * @param cursor    the nextCursor of the previous page, or null for the first page
+     * @param limit     the maximum number of orders in the page
+     * @return an ApiResponse containing the GetOrdersDto with one page of matching orders
      */
     @Transactional(Transactional.TxType.SUPPORTS)
-    public ApiResponse<GetOrdersDto> getAllOrdersByDateRangeOrShift(String orderDate, Boolean shift, String startDate, String endDate) {
-        final List<Object[]> results = orderRepository.findAllOrdersWithProductInfoByDateRangeOrShift(orderDate, shift, startDate, endDate);
-        final GetOrdersDto ordersDto = convertResultsToGetOrdersDto(results);
+    public ApiResponse<GetOrdersDto> getAllOrdersByDateRangeOrShift(String orderDate, Boolean shift, String startDate,
+                                                                    String endDate, String cursor, int limit) {
+        final GetOrdersDto ordersDto = findOrderPage(orderDate, shift, startDate, endDate, cursor, limit);
         return new ApiResponse<>(true, "Orders retrieved successfully!", ordersDto, null);
     }
 
     /**
-     * Converts a list of raw result arrays to a GetOrdersDto.
+     * Loads one page of whole orders. Order keys are paged first, by (order date, order id) descending,
+     * and only the lines of those orders are fetched, so a page never splits an order and its cost does
+     * not grow with the size of the table.
+     */
+    private GetOrdersDto findOrderPage(final String orderDate, final Boolean shift, final String startDate,
+                                       final String endDate, final String cursor, final int limit) {
+        final int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        final KeysetCursor after = KeysetCursor.decode(cursor);
+
+        // One extra key tells whether another page follows without a separate count query.
+        final List<OrderKeyRow> keys = orderQueryRepository.findOrderPage(orderDate, shift, startDate, endDate,
+                after == null ? null : after.sortKey(), after == null ? null : after.id(), pageSize + 1);
+        final boolean hasMore = keys.size() > pageSize;
+        final List<OrderKeyRow> pageKeys = hasMore ? keys.subList(0, pageSize) : keys;
+        if (pageKeys.isEmpty()) {
+            return new GetOrdersDto(new ArrayList<>(), Money.ZERO, Money.ZERO, null);
+        }
+
+        final List<String> orderIds = new ArrayList<>(pageKeys.size());
+        for (final OrderKeyRow key : pageKeys) {
+            orderIds.add(key.orderId());
+        }
+        final GetOrdersDto ordersDto = convertResultsToGetOrdersDto(orderQueryRepository.findOrderLinesByOrderIds(orderIds));
+
+        if (hasMore) {
+            final OrderKeyRow last = pageKeys.get(pageKeys.size() - 1);
+            ordersDto.setNextCursor(new KeysetCursor(last.orderDate(), last.orderId()).encode());
+        }
+        return ordersDto;
+    }
+
+    /**
+     * Converts a list of order line rows to a GetOrdersDto.
      *
-     * @param results the list of Object arrays from the native query
+     * @param results the order line rows, with the lines of each order together
      * @return a GetOrdersDto containing structured order data
      */
-    private GetOrdersDto convertResultsToGetOrdersDto(final List<Object[]> results) {
+    private GetOrdersDto convertResultsToGetOrdersDto(final List<OrderLineRow> results) {
         final List<UserOrderDto> orders = new ArrayList<>();
         final Map<String, UserOrderDto> orderMap = new HashMap<>();
-        BigDecimal grandTotal = BigDecimal.ZERO;
-        BigDecimal costGrandTotal = BigDecimal.ZERO;
-
-        for (final Object[] result : results) {
-            final String orderId = (String) result[0];
-            final String userId = (String) result[1];
-            final String shopName = (String) result[2];
-            final String orderDateResult = (String) result[3];
-            final String orderTime = (String) result[4];
-            final String productName = (String) result[5];
-            final int quantity = ((Number) result[6]).intValue();
+        long grandTotal = 0L;
+        long costGrandTotal = 0L;
 
-            final BigDecimal price = BigDecimal.valueOf(((Number) result[7]).doubleValue());
-            final BigDecimal cost = BigDecimal.valueOf(((Number) result[8]).doubleValue());
-            final BigDecimal subtotal = BigDecimal.valueOf(((Number) result[9]).doubleValue());
-            final BigDecimal costSubtotal = BigDecimal.valueOf(((Number) result[10]).doubleValue());
-            final BigDecimal totalAmount = BigDecimal.valueOf(((Number) result[11]).doubleValue());
-            final BigDecimal costAmount = BigDecimal.valueOf(((Number) result[12]).doubleValue());
-
-            UserOrderDto order = orderMap.get(orderId);
+        for (final OrderLineRow row : results) {
+            UserOrderDto order = orderMap.get(row.orderId());
             if (order == null) {
-                order = new UserOrderDto(orderId, userId, shopName, orderDateResult, orderTime, new ArrayList<>(), totalAmount, costAmount);
-                orderMap.put(orderId, order);
+                // Order totals repeat on every line of the order, so they are read only once per order.
+                order = new UserOrderDto(row.orderId(), row.userId(), row.shopName(), row.orderDate(), row.orderTime(),
+                        new ArrayList<>(), Money.ofMinor(row.totalAmountMinor()), Money.ofMinor(row.costAmountMinor()));
+                orderMap.put(row.orderId(), order);
                 orders.add(order);
 
-                grandTotal = grandTotal.add(totalAmount);
-                costGrandTotal = costGrandTotal.add(costAmount);
+                grandTotal += row.totalAmountMinor();
+                costGrandTotal += row.costAmountMinor();
             }
 
-            order.getProducts().add(new UserOrderDto.ProductInfoDto(productName, quantity, price, cost, subtotal, costSubtotal));
+            order.getProducts().add(new UserOrderDto.ProductInfoDto(row.productName(), row.quantity(),
+                    Money.ofMinor(row.priceMinor()), Money.ofMinor(row.costMinor()),
+                    Money.ofMinor(row.subtotalMinor()), Money.ofMinor(row.costSubtotalMinor())));
         }
 
-        return new GetOrdersDto(orders, grandTotal.doubleValue(), costGrandTotal.doubleValue());
+        return new GetOrdersDto(orders, Money.ofMinor(grandTotal), Money.ofMinor(costGrandTotal), null);
     }
 
     /**
-     * Helper method to extract UserOrderInfo from a raw result array.
+     * Helper method to build UserOrderInfo from an order line row.
      *
-     * @param obj the raw result array
-     * @return a UserOrderInfo DTO populated with data from the array
+     * @param row the order line row
+     * @return a UserOrderInfo DTO populated with data from the row
      */
-    private static UserOrderInfo getUserOrderInfo(final Object[] obj) {
+    private static UserOrderInfo getUserOrderInfo(final OrderLineRow row) {
         final UserOrderInfo dto = new UserOrderInfo();
-        dto.setOrderId((String) obj[0]);
-        dto.setUserId((String) obj[1]);
-        dto.setShopName((String) obj[2]);
-        dto.setOrderDate((String) obj[3]);
-        dto.setOrderTime((String) obj[4]);
-        dto.setProductName((String) obj[5]);
-        dto.setQuantity(((Number) obj[6]).intValue());
-
-        final BigDecimal subtotal = BigDecimal.valueOf(((Number) obj[7]).doubleValue());
-        final BigDecimal costSubtotal = BigDecimal.valueOf(((Number) obj[8]).doubleValue());
-        dto.setSubtotal(subtotal.doubleValue());
-        dto.setCostSubtotal(costSubtotal.doubleValue());
+        dto.setOrderId(row.orderId());
+        dto.setUserId(row.userId());
+        dto.setShopName(row.shopName());
+        dto.setOrderDate(row.orderDate());
+        dto.setOrderTime(row.orderTime());
+        dto.setProductName(row.productName());
+        dto.setQuantity(row.quantity());
+
+        dto.setSubtotal(Money.ofMinor(row.subtotalMinor()));
+        dto.setCostSubtotal(Money.ofMinor(row.costSubtotalMinor()));
         return dto;
     }
 }
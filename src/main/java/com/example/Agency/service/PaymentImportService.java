@@ -0,0 +1,372 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.response.BatchItemResult;
+import com.example.Agency.dto.response.PaymentImportResult;
+import com.example.Agency.dto.reuests.BatchPaymentRequest;
+import com.example.Agency.dto.reuests.PaymentRequest;
+import com.example.Agency.event.UserChangedEvent;
+import com.example.Agency.repository.UserRepository;
+import com.example.Agency.sheet.CsvSheetReader;
+import com.example.Agency.sheet.SheetRowHandler;
+import com.example.Agency.sheet.XlsxSheetReader;
+import com.example.Agency.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports collectors' end-of-day sheets, CSV or XLSX, into payments.
+ * <p>
+ * The upload is parsed row by row and each row is checked against an index of user ids and mobile
+ * numbers, so invalid rows are rejected without touching the database; the index is reloaded after a
+ * user is added, changed or deleted. The sheet is read twice: the first pass validates every row and
+ * writes nothing, so a sheet that turns out to be unreadable part way through is rejected before any
+ * payment is committed. The second pass hands the valid rows to {@link PaymentService#createBatchPayments}
+ * in chunks, one transaction per chunk. Only the current chunk and the failed rows are held in memory,
+ * whatever the size of the sheet.
+ */
+@Slf4j
+@Service
+public class PaymentImportService {
+
+    private static final int AMOUNT_SCALE = 2;
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+
+    private final PaymentService paymentService;
+    private final UserRepository userRepository;
+    private final CsvSheetReader csvSheetReader;
+    private final XlsxSheetReader xlsxSheetReader;
+    private final int chunkSize;
+    private final Duration userIndexTtl;
+
+    private volatile UserIndex userIndex;
+
+    public PaymentImportService(final PaymentService paymentService,
+                                final UserRepository userRepository,
+                                final CsvSheetReader csvSheetReader,
+                                final XlsxSheetReader xlsxSheetReader,
+                                @Value("${app.payments.import.chunk-size:500}") final int chunkSize,
+                                @Value("${app.payments.import.user-index-ttl:5m}") final Duration userIndexTtl) {
+        this.paymentService = paymentService;
+        this.userRepository = userRepository;
+        this.csvSheetReader = csvSheetReader;
+        this.xlsxSheetReader = xlsxSheetReader;
+        this.chunkSize = chunkSize;
+        this.userIndexTtl = userIndexTtl;
+    }
+
+    /**
+     * Imports a sheet with a header row naming its columns: userId or mobileNumber, amountPaid, and
+     * optionally paymentDate and receivedBy.
+     *
+     * @param file        the uploaded .csv or .xlsx file
+     * @param receivedBy  the collector for rows without one, or null
+     * @param paymentDate the payment date for rows without one, or null
+     * @return an ApiResponse with the counts and the failed rows
+     * @throws IOException              if the upload cannot be read
+     * @throws IllegalArgumentException if the file type or header is not recognised, or the sheet cannot be
+     *                                  parsed; nothing is imported then
+     */
+    public ApiResponse<PaymentImportResult> importSheet(final MultipartFile file, final String receivedBy,
+                                                        final LocalDate paymentDate) throws IOException {
+        final String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return importRows(file.getOriginalFilename(), handler -> {
+                try (InputStream in = file.getInputStream()) {
+                    csvSheetReader.read(in, handler);
+                }
+            }, receivedBy, paymentDate);
+        }
+        if (name.endsWith(".xlsx")) {
+            // The XLSX reader needs random access to the zip entries; a file avoids buffering them in memory.
+            final Path workbook = Files.createTempFile("payment-import-", ".xlsx");
+            try {
+                file.transferTo(workbook);
+                return importRows(file.getOriginalFilename(), handler -> xlsxSheetReader.read(workbook, handler),
+                        receivedBy, paymentDate);
+            } finally {
+                Files.deleteIfExists(workbook);
+            }
+        }
+        throw new IllegalArgumentException("Upload a .csv or .xlsx file");
+    }
+
+    private ApiResponse<PaymentImportResult> importRows(final String fileName, final SheetSource source,
+                                                        final String receivedBy, final LocalDate paymentDate)
+            throws IOException {
+        final SheetImport sheet = new SheetImport(receivedBy, paymentDate);
+        final long started = System.currentTimeMillis();
+        source.read(sheet);
+        if (sheet.columns == null) {
+            throw new IllegalArgumentException("The sheet is empty");
+        }
+        sheet.startWriting();
+        source.read(sheet);
+        sheet.flush();
+        // Rows rejected on parsing and rows rejected with their chunk were collected separately.
+        sheet.errors.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+
+        final int failed = sheet.errors.size();
+        log.info("Payment sheet {} imported: {} rows, {} payments for {}, {} failed in {} ms", fileName,
+                sheet.rows, sheet.imported, sheet.amountImported, failed, System.currentTimeMillis() - started);
+        return new ApiResponse<>(failed == 0, "Imported " + sheet.imported + " of " + sheet.rows + " payments, "
+                + failed + " failed",
+                new PaymentImportResult(sheet.rows, sheet.imported, failed, sheet.amountImported, sheet.errors), null);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(final UserChangedEvent event) {
+        userIndex = null;
+    }
+
+    private UserIndex userIndex(final boolean reload) {
+        UserIndex index = userIndex;
+        if (reload || index == null || index.loadedAt().plus(userIndexTtl).isBefore(Instant.now())) {
+            final Set<String> userIds = new HashSet<>();
+            final Map<String, String> userIdByMobile = new HashMap<>();
+            for (final UserRepository.UserKey key : userRepository.findAllKeys()) {
+                userIds.add(key.getUserId());
+                if (key.getMobileNumber() != null) {
+                    userIdByMobile.put(normalizeMobile(key.getMobileNumber()), key.getUserId());
+                }
+            }
+            index = new UserIndex(userIds, userIdByMobile, Instant.now());
+            userIndex = index;
+        }
+        return index;
+    }
+
+    private static String normalizeMobile(final String mobile) {
+        return mobile.replaceAll("[\\s-]", "");
+    }
+
+    private static LocalDate parseDate(final String value) {
+        for (final DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface SheetSource {
+        void read(SheetRowHandler handler) throws IOException;
+    }
+
+    private record UserIndex(Set<String> userIds, Map<String, String> userIdByMobile, Instant loadedAt) {
+    }
+
+    /**
+     * Positions of the recognised columns in the header row; -1 when absent.
+     */
+    private record Columns(int userId, int mobileNumber, int amountPaid, int paymentDate, int receivedBy) {
+
+        static Columns of(final List<String> header) {
+            int userId = -1, mobileNumber = -1, amountPaid = -1, paymentDate = -1, receivedBy = -1;
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "")) {
+                    case "userid" -> userId = i;
+                    case "mobilenumber", "mobile", "mobileno" -> mobileNumber = i;
+                    case "amountpaid", "amount" -> amountPaid = i;
+                    case "paymentdate", "date" -> paymentDate = i;
+                    case "receivedby", "collector" -> receivedBy = i;
+                    default -> {
+                        // other columns are ignored
+                    }
+                }
+            }
+            if (amountPaid < 0 || (userId < 0 && mobileNumber < 0)) {
+                throw new IllegalArgumentException("The header row must name an amountPaid column and a userId "
+                        + "or mobileNumber column");
+            }
+            return new Columns(userId, mobileNumber, amountPaid, paymentDate, receivedBy);
+        }
+
+        static String value(final List<String> cells, final int column) {
+            return column < 0 || column >= cells.size() ? "" : cells.get(column).trim();
+        }
+    }
+
+    /**
+     * The state of one import: the header, the rows rejected by the validating pass, the chunk being
+     * collected by the writing pass and the outcome so far.
+     */
+    private final class SheetImport implements SheetRowHandler {
+        private final String defaultReceivedBy;
+        private final LocalDate defaultPaymentDate;
+        private UserIndex index = userIndex(false);
+        private boolean indexReloaded;
+        private Columns columns;
+        private boolean headerRead;
+        private boolean writing;
+        private final BitSet rejectedRows = new BitSet();
+        private final List<PaymentRequest> pending = new ArrayList<>();
+        private final List<Integer> pendingRows = new ArrayList<>();
+        private final List<BatchItemResult> errors = new ArrayList<>();
+        private int rows;
+        private int imported;
+        private Money amountImported = Money.ZERO;
+
+        private SheetImport(final String defaultReceivedBy, final LocalDate defaultPaymentDate) {
+            this.defaultReceivedBy = defaultReceivedBy;
+            this.defaultPaymentDate = defaultPaymentDate;
+        }
+
+        /**
+         * Switches from validating the rows to writing them; the sheet is then read again from the top.
+         */
+        private void startWriting() {
+            writing = true;
+            headerRead = false;
+        }
+
+        @Override
+        public void row(final int rowNumber, final List<String> cells) {
+            if (!headerRead) {
+                headerRead = true;
+                if (columns == null) {
+                    columns = Columns.of(cells);
+                }
+                return;
+            }
+            if (writing && rejectedRows.get(rowNumber)) {
+                return;
+            }
+            if (!writing) {
+                rows++;
+            }
+            final PaymentRequest request = new PaymentRequest();
+            final String invalid = parse(cells, request);
+            if (invalid != null) {
+                errors.add(BatchItemResult.failed(rowNumber, invalid));
+                rejectedRows.set(rowNumber);
+                return;
+            }
+            if (!writing) {
+                return;
+            }
+            pending.add(request);
+            pendingRows.add(rowNumber);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private String parse(final List<String> cells, final PaymentRequest request) {
+            final String userIdValue = Columns.value(cells, columns.userId());
+            final String mobileValue = Columns.value(cells, columns.mobileNumber());
+            if (userIdValue.isEmpty() && mobileValue.isEmpty()) {
+                return "userId or mobileNumber is required";
+            }
+            final String userId = resolveUser(userIdValue, mobileValue);
+            if (userId == null) {
+                return "User not found: " + (userIdValue.isEmpty() ? mobileValue : userIdValue);
+            }
+            request.setUserId(userId);
+
+            final String amount = Columns.value(cells, columns.amountPaid()).replace(",", "");
+            try {
+                final BigDecimal value = new BigDecimal(amount);
+                if (value.stripTrailingZeros().scale() > AMOUNT_SCALE) {
+                    return "Amount '" + amount + "' has more than " + AMOUNT_SCALE + " decimal places";
+                }
+                final Money amountPaid = Money.of(value);
+                if (amountPaid.signum() <= 0) {
+                    return "Amount must be positive";
+                }
+                request.setAmountPaid(amountPaid.toDouble());
+            } catch (NumberFormatException | ArithmeticException e) {
+                return "Invalid amount '" + amount + "'";
+            }
+
+            final String date = Columns.value(cells, columns.paymentDate());
+            final LocalDate paymentDate = date.isEmpty() ? defaultPaymentDate : parseDate(date);
+            if (paymentDate == null) {
+                return date.isEmpty() ? "paymentDate is required" : "Invalid paymentDate '" + date + "'";
+            }
+            request.setPaymentDate(paymentDate);
+
+            final String receivedBy = Columns.value(cells, columns.receivedBy());
+            request.setReceivedBy(receivedBy.isEmpty() ? defaultReceivedBy : receivedBy);
+            return null;
+        }
+
+        private String resolveUser(final String userId, final String mobileNumber) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                if (!userId.isEmpty() && index.userIds().contains(userId)) {
+                    return userId;
+                }
+                if (!mobileNumber.isEmpty()) {
+                    final String byMobile = index.userIdByMobile().get(normalizeMobile(mobileNumber));
+                    if (byMobile != null) {
+                        return byMobile;
+                    }
+                }
+                // The cached index may predate a newly added shop; reload it once per import.
+                if (indexReloaded) {
+                    return null;
+                }
+                index = userIndex(true);
+                indexReloaded = true;
+            }
+            return null;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                final List<BatchItemResult> results =
+                        paymentService.createBatchPayments(new BatchPaymentRequest(new ArrayList<>(pending))).getData();
+                for (int i = 0; i < results.size(); i++) {
+                    final BatchItemResult result = results.get(i);
+                    if (result.isSuccess()) {
+                        imported++;
+                        amountImported = amountImported.plus(Money.of(pending.get(i).getAmountPaid()));
+                    } else {
+                        errors.add(BatchItemResult.failed(pendingRows.get(i), result.getError()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                // The chunk's transaction rolled back, so none of its rows were written.
+                log.warn("Payment import chunk of rows {} to {} failed", pendingRows.get(0),
+                        pendingRows.get(pendingRows.size() - 1), e);
+                for (final Integer rowNumber : pendingRows) {
+                    errors.add(BatchItemResult.failed(rowNumber, "Not imported: " + e.getMessage()));
+                }
+            }
+            pending.clear();
+            pendingRows.clear();
+        }
+    }
+}
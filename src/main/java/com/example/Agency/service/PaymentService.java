@@ -1,21 +1,37 @@
 package com.example.Agency.service;
 
 import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.GetPaymentHistoryDto;
 import com.example.Agency.dto.PaymentHistoryDto;
+import com.example.Agency.dto.response.BatchItemResult;
 import com.example.Agency.dto.reuests.BatchPaymentRequest;
 import com.example.Agency.dto.reuests.PaymentRequest;
+import com.example.Agency.event.PaymentsChangedEvent;
 import com.example.Agency.model.Payments;
 import com.example.Agency.model.User;
+import com.example.Agency.repository.PaymentQueryRepository;
+import com.example.Agency.repository.PaymentWriteRepository;
 import com.example.Agency.repository.PaymentsRepository;
 import com.example.Agency.repository.UserRepository;
+import com.example.Agency.repository.row.PaymentHistoryRow;
+import com.example.Agency.util.KeysetCursor;
+import com.example.Agency.util.Money;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -23,8 +39,14 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class PaymentService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final PaymentsRepository paymentRepository;
     private final UserRepository userRepository;
+    private final PaymentWriteRepository paymentWriteRepository;
+    private final PaymentQueryRepository paymentQueryRepository;
+    private final BalanceService balanceService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Creates a single payment and updates the user's balance accordingly.
@@ -37,7 +59,8 @@ public class PaymentService {
         log.info("Creating payment for userId: {} with amount: {}", request.getUserId(), request.getAmountPaid());
 
         // Validate that the payment amount is greater than zero
-        if (request.getAmountPaid() <= 0) {
+        final Money amountPaid = Money.of(request.getAmountPaid());
+        if (amountPaid.signum() <= 0) {
             throw new IllegalArgumentException("Payment amount must be positive");
         }
 
@@ -45,59 +68,99 @@ public class PaymentService {
         final User user = userRepository.findById(request.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + request.getUserId()));
 
-        // Update user's balance using the helper method
-        updateUserBalanceForPayment(user, request.getAmountPaid());
-        userRepository.save(user);
-        log.info("Updated balance for userId: {}", user.getUserId());
-
-        // Create and save payment record
+        // Create the payment record; its id goes on the balance ledger entry
         Payments payment = new Payments();
         payment.setUser(user);
-        payment.setAmountPaid(request.getAmountPaid());
+        payment.setAmountPaid(amountPaid);
         payment.setReceivedBy(request.getReceivedBy());
         payment.setPaymentDate(request.getPaymentDate());
 
+        // Update user's balance atomically in the database
+        balanceService.applyPayment(user.getUserId(), amountPaid, payment.getPaymentId(), payment.getPaymentDate());
+        log.info("Updated balance for userId: {}", user.getUserId());
+
         Payments savedPayment = paymentRepository.save(payment);
+        eventPublisher.publishEvent(new PaymentsChangedEvent(user.getUserId(), savedPayment.getPaymentDate()));
         log.info("Payment created successfully with id: {}", savedPayment.getPaymentId());
         return savedPayment;
     }
 
     /**
      * Creates batch payments and updates the users' balances accordingly.
+     * <p>
+     * All users are loaded with one query, the payments of each user are folded into a single balance
+     * update, and the payment rows are inserted as one JDBC batch. Invalid rows are reported and skipped;
+     * the valid ones are written together.
      *
      * @param batchRequest the batch payment request containing multiple payment requests.
-     * @return a list of saved Payment records.
+     * @return an ApiResponse with one result per submitted payment, in submission order
      */
     @Transactional
-    public List<Payments> createBatchPayments(BatchPaymentRequest batchRequest) {
-        log.info("Creating batch payments for {} records", batchRequest.getPayments().size());
-        return batchRequest.getPayments().stream().map(request -> {
-            // Validate payment amount
-            if (request.getAmountPaid() <= 0) {
-                throw new IllegalArgumentException(
-                        "Invalid amount for user " + request.getUserId() + ": Amount must be positive"
-                );
-            }
+    public ApiResponse<List<BatchItemResult>> createBatchPayments(BatchPaymentRequest batchRequest) {
+        final List<PaymentRequest> requests = batchRequest.getPayments();
+        final List<BatchItemResult> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
 
-            final User user = userRepository.findById(request.getUserId())
-                    .orElseThrow(() -> new RuntimeException("User not found with ID: " + request.getUserId()));
+        final Set<String> userIds = new HashSet<>();
+        for (final PaymentRequest request : requests) {
+            if (request != null && request.getUserId() != null) {
+                userIds.add(request.getUserId());
+            }
+        }
+        final Map<String, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getUserId(), user));
 
-            // Update user's balance using the helper method
-            updateUserBalanceForPayment(user, request.getAmountPaid());
-            userRepository.save(user);
-            log.info("Updated balance for userId: {}", user.getUserId());
+        final List<Payments> payments = new ArrayList<>();
+        final List<Integer> paymentIndexes = new ArrayList<>();
+        final Map<String, List<BalanceService.PaymentPosting>> postingsByUser = new LinkedHashMap<>();
+        for (int index = 0; index < requests.size(); index++) {
+            final PaymentRequest request = requests.get(index);
+            final String invalid = validate(request, users);
+            if (invalid != null) {
+                results.set(index, BatchItemResult.failed(index, invalid));
+                continue;
+            }
+            final Money amountPaid = Money.of(request.getAmountPaid());
+            final User user = users.get(request.getUserId());
 
-            // Create payment record
             Payments payment = new Payments();
             payment.setUser(user);
-            payment.setAmountPaid(request.getAmountPaid());
+            payment.setAmountPaid(amountPaid);
             payment.setReceivedBy(request.getReceivedBy());
             payment.setPaymentDate(request.getPaymentDate());
+            postingsByUser.computeIfAbsent(user.getUserId(), userId -> new ArrayList<>())
+                    .add(new BalanceService.PaymentPosting(payment.getPaymentId(), payment.getPaymentDate(), amountPaid));
+            payments.add(payment);
+            paymentIndexes.add(index);
+        }
+
+        // Applying the sum once leaves the same due amount and advance as applying each payment in turn.
+        postingsByUser.forEach(balanceService::applyPayments);
+        if (!payments.isEmpty()) {
+            paymentWriteRepository.insertAll(payments);
+        }
+        for (int i = 0; i < payments.size(); i++) {
+            final Payments payment = payments.get(i);
+            results.set(paymentIndexes.get(i), BatchItemResult.succeeded(paymentIndexes.get(i), payment.getPaymentId()));
+            eventPublisher.publishEvent(new PaymentsChangedEvent(payment.getUser().getUserId(), payment.getPaymentDate()));
+        }
+
+        final int failed = requests.size() - payments.size();
+        log.info("Payment batch processed: {} payments for {} users, {} failed", payments.size(), postingsByUser.size(), failed);
+        return new ApiResponse<>(failed == 0, "Processed " + requests.size() + " payments, " + failed + " failed",
+                results, null);
+    }
 
-            Payments savedPayment = paymentRepository.save(payment);
-            log.info("Payment created for userId: {} with id: {}", user.getUserId(), savedPayment.getPaymentId());
-            return savedPayment;
-        }).collect(Collectors.toList());
+    private String validate(final PaymentRequest request, final Map<String, User> users) {
+        if (request == null || request.getUserId() == null || request.getPaymentDate() == null) {
+            return "userId and paymentDate are required";
+        }
+        if (Money.of(request.getAmountPaid()).signum() <= 0) {
+            return "Invalid amount for user " + request.getUserId() + ": Amount must be positive";
+        }
+        if (!users.containsKey(request.getUserId())) {
+            return "User not found with ID: " + request.getUserId();
+        }
+        return null;
     }
 
     /**
@@ -110,7 +173,8 @@ public class PaymentService {
     public ApiResponse<Payments> createPaymentFromAdvance(PaymentRequest request) {
         log.info("Creating payment from advance for userId: {} with amount: {}", request.getUserId(), request.getAmountPaid());
 
-        if (request.getAmountPaid() <= 0) {
+        final Money amountPaid = Money.of(request.getAmountPaid());
+        if (amountPaid.signum() <= 0) {
             return new ApiResponse<>(false, "Invalid payment amount", null, "Payment amount must be greater than zero");
         }
 
@@ -121,93 +185,88 @@ public class PaymentService {
         final User user = userOpt.get();
 
         // Validate that the payment amount does not exceed the due amount
-        if (user.getDueAmount() == 0) {
+        if (user.getDueAmount().isZero()) {
             return new ApiResponse<>(false, "No due amount", null, "The due is 0");
         }
-        if (request.getAmountPaid() > user.getDueAmount()) {
+        if (amountPaid.compareTo(user.getDueAmount()) > 0) {
             return new ApiResponse<>(false, "Payment amount exceeds due amount", null, "Payment amount exceeds due amount");
         }
         // Validate that sufficient advance is available
-        if (user.getAdvance() <= 0 || user.getAdvance() < request.getAmountPaid()) {
+        if (user.getAdvance().signum() <= 0 || user.getAdvance().compareTo(amountPaid) < 0) {
             return new ApiResponse<>(false, "Insufficient advance", null, "Insufficient advance or advance is zero");
         }
 
-        // Deduct payment amount from both due amount and advance.
-        user.setDueAmount(user.getDueAmount() - request.getAmountPaid());
-        user.setAdvance(user.getAdvance() - request.getAmountPaid());
-        userRepository.save(user);
-        log.info("Deducted payment from user balance for userId: {}", user.getUserId());
-
-        // Create payment record.
+        // Create payment record; its id goes on the balance ledger entry.
         Payments payment = new Payments();
         payment.setUser(user);
         payment.setPaymentDate(request.getPaymentDate());
-        payment.setAmountPaid(request.getAmountPaid());
+        payment.setAmountPaid(amountPaid);
         payment.setReceivedBy(request.getReceivedBy());
+
+        // Deduct payment amount from both due amount and advance. The update re-checks both
+        // guards, so a concurrent order or payment cannot drive either balance negative.
+        if (!balanceService.settleFromAdvance(user.getUserId(), amountPaid, payment.getPaymentId(),
+                payment.getPaymentDate())) {
+            return new ApiResponse<>(false, "Insufficient advance", null, "Due amount or advance changed, please retry");
+        }
+        log.info("Deducted payment from user balance for userId: {}", user.getUserId());
+
         Payments savedPayment = paymentRepository.save(payment);
+        eventPublisher.publishEvent(new PaymentsChangedEvent(user.getUserId(), savedPayment.getPaymentDate()));
         log.info("Payment from advance created successfully with id: {}", savedPayment.getPaymentId());
         return new ApiResponse<>(true, "Payment created successfully", savedPayment, null);
     }
 
     /**
-     * Helper method to update a user's balance for a regular payment.
-     * <p>
-     * If the payment amount exceeds the user's due amount, the excess is added to their advance and the due is set to zero.
-     * Otherwise, the due amount is reduced by the payment amount.
+     * Retrieves one page of the payment history, newest first.
      *
-     * @param user       the user whose balance is being updated
-     * @param amountPaid the payment amount
+     * @param fromDate   the first payment date to include, or null
+     * @param toDate     the last payment date to include, or null
+     * @param receivedBy only payments taken by this collector, or null for all
+     * @param cursor     the nextCursor of the previous page, or null for the first page
+     * @param limit      the maximum number of payments to return
+     * @return an ApiResponse with the page and the cursor of the next one
      */
-    private void updateUserBalanceForPayment(final User user, final double amountPaid) {
-        final double dueAmount = user.getDueAmount();
-        if (amountPaid > dueAmount) {
-            double extra = amountPaid - dueAmount;
-            user.setAdvance(user.getAdvance() + extra);
-            user.setDueAmount(0.0);
-        } else {
-            user.setDueAmount(dueAmount - amountPaid);
-        }
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ApiResponse<GetPaymentHistoryDto> getPaymentHistory(LocalDate fromDate, LocalDate toDate, String receivedBy,
+                                                               String cursor, int limit) {
+        final GetPaymentHistoryDto page = findHistoryPage(null, fromDate, toDate, receivedBy, cursor, limit);
+        return new ApiResponse<>(true, "Payment history retrieved successfully", page, null);
     }
 
-
-
-    @Transactional(rollbackOn = Exception.class, value = Transactional.TxType.SUPPORTS)
-    public ApiResponse<List<PaymentHistoryDto>> getPaymentHistory() {
-        log.info("Fetching payment history");
-        List<Payments> payments = paymentRepository.findAll();
-        List<PaymentHistoryDto> history = payments.stream().map(payment -> {
-            PaymentHistoryDto dto = new PaymentHistoryDto();
-            dto.setPaymentId(payment.getPaymentId());
-            dto.setPaymentDate(payment.getPaymentDate());
-            dto.setAmountPaid(payment.getAmountPaid());
-            dto.setReceivedBy(payment.getReceivedBy());
-            User user = payment.getUser();
-            dto.setUserId(user.getUserId());
-            dto.setUserName(user.getUserName());
-            dto.setShopName(user.getShopName());
-            return dto;
-        }).collect(Collectors.toList());
-        return new ApiResponse<>(true, "Payment history retrieved successfully", history, null);
+    /**
+     * Retrieves one page of a user's payment history, newest first.
+     *
+     * @see #getPaymentHistory(LocalDate, LocalDate, String, String, int)
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ApiResponse<GetPaymentHistoryDto> getPaymentHistoryByUserId(String userId, LocalDate fromDate, LocalDate toDate,
+                                                                       String receivedBy, String cursor, int limit) {
+        final GetPaymentHistoryDto page = findHistoryPage(userId, fromDate, toDate, receivedBy, cursor, limit);
+        return new ApiResponse<>(true, "Payment history retrieved successfully for userId: " + userId, page, null);
     }
 
+    /**
+     * Loads one page with a single joined projection query, paged by (payment date, payment id) descending.
+     */
+    private GetPaymentHistoryDto findHistoryPage(final String userId, final LocalDate fromDate, final LocalDate toDate,
+                                                 final String receivedBy, final String cursor, final int limit) {
+        final int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        final KeysetCursor after = KeysetCursor.decode(cursor);
 
-    @Transactional(Transactional.TxType.SUPPORTS)
-    public ApiResponse<List<PaymentHistoryDto>> getPaymentHistoryByUserId(String userId) {
-        log.info("Fetching payment history for userId: {}", userId);
-        // Assumes PaymentsRepository has a method: findByUserUserId(String userId)
-        List<Payments> payments = paymentRepository.findByUserUserId(userId);
-        List<PaymentHistoryDto> history = payments.stream().map(payment -> {
-            PaymentHistoryDto dto = new PaymentHistoryDto();
-            dto.setPaymentId(payment.getPaymentId());
-            dto.setPaymentDate(payment.getPaymentDate());
-            dto.setAmountPaid(payment.getAmountPaid());
-            dto.setReceivedBy(payment.getReceivedBy());
-            User user = payment.getUser();
-            dto.setUserId(user.getUserId());
-            dto.setUserName(user.getUserName());
-            dto.setShopName(user.getShopName());
-            return dto;
-        }).collect(Collectors.toList());
-        return new ApiResponse<>(true, "Payment history retrieved successfully for userId: " + userId, history, null);
+        // One extra row tells whether another page follows without a separate count query.
+        final List<PaymentHistoryRow> rows = paymentQueryRepository.findHistoryPage(userId, fromDate, toDate,
+                receivedBy, after == null ? null : after.sortKey(), after == null ? null : after.id(), pageSize + 1);
+        final boolean hasMore = rows.size() > pageSize;
+        final List<PaymentHistoryRow> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        final List<PaymentHistoryDto> history = new ArrayList<>(pageRows.size());
+        for (final PaymentHistoryRow row : pageRows) {
+            history.add(new PaymentHistoryDto(row.paymentId(), row.userId(), row.userName(), row.shopName(),
+                    LocalDate.parse(row.paymentDate()), Money.ofMinor(row.amountPaidMinor()), row.receivedBy()));
+        }
+        final PaymentHistoryRow last = hasMore ? pageRows.get(pageRows.size() - 1) : null;
+        return new GetPaymentHistoryDto(history,
+                last == null ? null : new KeysetCursor(last.paymentDate(), last.paymentId()).encode());
     }
 }
@@ -0,0 +1,76 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.ProductStatus;
+import com.example.Agency.event.ProductsChangedEvent;
+import com.example.Agency.model.Product;
+import com.example.Agency.repository.ProductRepository;
+import com.example.Agency.util.Money;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of the product catalog used to price orders.
+ * <p>
+ * Readers get an immutable {@link Snapshot}; a product change that commits builds a new snapshot and
+ * swaps it in atomically. Each snapshot carries a version, which is recorded on the orders it priced.
+ * Each instance refreshes from its own product writes only.
+ */
+@Slf4j
+@Service
+public class ProductCatalog {
+
+    private final ProductRepository productRepository;
+    private volatile Snapshot snapshot = new Snapshot(0L, Map.of());
+
+    public ProductCatalog(final ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsChanged(final ProductsChangedEvent event) {
+        refresh();
+    }
+
+    /**
+     * Reloads the catalog and publishes it as a new snapshot.
+     */
+    public synchronized void refresh() {
+        final List<Product> products = productRepository.findAll();
+        final Map<String, CatalogProduct> byId = new HashMap<>(products.size() * 2);
+        for (final Product product : products) {
+            byId.put(product.getProductId(), new CatalogProduct(product.getProductId(), product.getProductName(),
+                    Money.of(product.getUnitPrice()), Money.of(product.getOriginalPrice()), product.getStatus()));
+        }
+        // Time-based so versions keep increasing across restarts.
+        final long version = Math.max(snapshot.version() + 1, System.currentTimeMillis());
+        snapshot = new Snapshot(version, Map.copyOf(byId));
+        log.info("Product catalog refreshed: {} products, version {}", byId.size(), version);
+    }
+
+    public record CatalogProduct(String productId, String productName, Money unitPrice, Money originalPrice,
+                                 ProductStatus status) {
+    }
+
+    public record Snapshot(long version, Map<String, CatalogProduct> products) {
+
+        public CatalogProduct find(final String productId) {
+            return productId == null ? null : products.get(productId);
+        }
+    }
+}
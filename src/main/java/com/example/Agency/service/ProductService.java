@@ -2,6 +2,7 @@ package com.example.Agency.service;
 
 import com.example.Agency.domain.ProductStatus;
 import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.event.ProductsChangedEvent;
 import com.example.Agency.exception.FileStorageException;
 import com.example.Agency.exception.ProductNotFoundException;
 import com.example.Agency.model.Product;
@@ -10,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -28,6 +30,7 @@ public class ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.image-dir}")
     private String imageDir;
@@ -68,6 +71,8 @@ public class ProductService {
 
             // Save the product in the database
             Product savedProduct = productRepository.save(product);
+            // The product catalog reloads once this transaction commits
+            eventPublisher.publishEvent(new ProductsChangedEvent(savedProduct.getProductId()));
             return new ApiResponse<>(true, "Product saved successfully!", savedProduct, null);
         } catch (IOException e) {
             logger.error("Failed to save product image: {}", e.getMessage());
@@ -104,6 +109,7 @@ public class ProductService {
         }
 
         Product updatedProduct = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(new ProductsChangedEvent(productId));
         return new ApiResponse<>(true, "Product updated successfully", updatedProduct, null);
     }
 
@@ -135,6 +141,7 @@ public class ProductService {
     public ApiResponse<String> deleteByProductId(String productId) {
         if (productRepository.existsById(productId)) {
             productRepository.deleteById(productId);
+            eventPublisher.publishEvent(new ProductsChangedEvent(productId));
             return new ApiResponse<>(true, "Product successfully deleted!", null, null);
         } else {
             return new ApiResponse<>(false, "Unable to delete: Product not found", null, null);
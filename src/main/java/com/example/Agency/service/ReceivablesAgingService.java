@@ -0,0 +1,211 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.ReceivablesAgingDto;
+import com.example.Agency.dto.ShopAgingDto;
+import com.example.Agency.event.OrdersChangedEvent;
+import com.example.Agency.event.PaymentsChangedEvent;
+import com.example.Agency.repository.ReportQueryRepository;
+import com.example.Agency.repository.row.OrderAmountRow;
+import com.example.Agency.repository.row.ShopDueRow;
+import com.example.Agency.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Splits every shop's due amount into age buckets of 0–7, 8–30, 31–60 and over 60 days.
+ * <p>
+ * Payments are allocated to orders first in, first out, so what is still owed is the newest orders
+ * that together make up the due amount. Each shop's orders are therefore read newest first, a page at a
+ * time, only until the due amount is covered; the due amount already nets payments, advances and
+ * settlements from advance. Shops are allocated on virtual threads, with a semaphore capping the
+ * concurrent queries.
+ * <p>
+ * The allocation of each shop does not depend on the report date, so it is cached until an order or
+ * payment for the shop commits, and a cached allocation is only used while the shop's due amount is
+ * unchanged.
+ */
+@Slf4j
+@Service
+public class ReceivablesAgingService {
+
+    private static final int ORDER_PAGE_SIZE = 32;
+
+    private final ReportQueryRepository reportQueryRepository;
+    private final Semaphore queryPermits;
+
+    private final Map<String, Allocation> allocations = new ConcurrentHashMap<>();
+
+    public ReceivablesAgingService(final ReportQueryRepository reportQueryRepository,
+                                   @Value("${app.reports.aging.parallelism:8}") final int parallelism) {
+        this.reportQueryRepository = reportQueryRepository;
+        this.queryPermits = new Semaphore(parallelism);
+    }
+
+    /**
+     * Builds the aging of all shops that owe something.
+     *
+     * @param asOf the date the ages are counted to; today if null
+     * @return an ApiResponse containing the totals and one row per shop
+     */
+    public ApiResponse<ReceivablesAgingDto> getAging(final LocalDate asOf) {
+        final LocalDate date = asOf == null ? LocalDate.now() : asOf;
+        final long started = System.currentTimeMillis();
+        final List<ShopDueRow> shops = reportQueryRepository.findShopsWithDue();
+
+        final List<Future<Allocation>> pending = new ArrayList<>(shops.size());
+        final List<ShopAgingDto> rows = new ArrayList<>(shops.size());
+        int computed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (final ShopDueRow shop : shops) {
+                final Allocation cached = allocations.get(shop.userId());
+                if (cached != null && cached.dueAmountMinor() == shop.dueAmountMinor()) {
+                    pending.add(CompletableFuture.completedFuture(cached));
+                } else {
+                    pending.add(executor.submit(() -> allocate(shop)));
+                    computed++;
+                }
+            }
+            try {
+                for (int i = 0; i < shops.size(); i++) {
+                    rows.add(age(shops.get(i), pending.get(i).get(), date));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                throw new IllegalStateException("Receivables aging interrupted", e);
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("Receivables aging failed", e.getCause());
+            }
+        }
+        log.info("Receivables aging as of {}: {} shops, {} allocated and {} cached, in {} ms", date, shops.size(),
+                computed, shops.size() - computed, System.currentTimeMillis() - started);
+        return new ApiResponse<>(true, "Receivables aging retrieved successfully", summarize(date, rows), null);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrdersChanged(final OrdersChangedEvent event) {
+        allocations.remove(event.userId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPaymentsChanged(final PaymentsChangedEvent event) {
+        allocations.remove(event.userId());
+    }
+
+    // Walks the shop's orders newest first, taking from each until the due amount is used up.
+    private Allocation allocate(final ShopDueRow shop) throws InterruptedException {
+        queryPermits.acquire();
+        try {
+            long remaining = shop.dueAmountMinor();
+            final List<OrderSlice> slices = new ArrayList<>();
+            LocalDate cursorDate = null;
+            Boolean cursorShift = null;
+            while (remaining > 0) {
+                final List<OrderAmountRow> page = reportQueryRepository.findOrderAmountsPage(shop.userId(),
+                        cursorDate, cursorShift, ORDER_PAGE_SIZE);
+                for (final OrderAmountRow order : page) {
+                    final long owed = Math.min(remaining, order.totalAmountMinor());
+                    if (owed > 0) {
+                        slices.add(new OrderSlice(order.orderDate(), owed));
+                        remaining -= owed;
+                    }
+                    if (remaining == 0) {
+                        break;
+                    }
+                }
+                if (page.size() < ORDER_PAGE_SIZE) {
+                    break;
+                }
+                final OrderAmountRow last = page.get(page.size() - 1);
+                cursorDate = last.orderDate();
+                cursorShift = last.orderShift();
+            }
+            final Allocation allocation = new Allocation(shop.dueAmountMinor(), List.copyOf(slices), remaining);
+            // A write that commits while this runs changes the due amount in almost every case, and an entry
+            // for an outdated due amount is never used.
+            allocations.put(shop.userId(), allocation);
+            return allocation;
+        } finally {
+            queryPermits.release();
+        }
+    }
+
+    private static ShopAgingDto age(final ShopDueRow shop, final Allocation allocation, final LocalDate asOf) {
+        final long[] buckets = new long[Bucket.values().length];
+        LocalDate oldest = null;
+        for (final OrderSlice slice : allocation.slices()) {
+            buckets[Bucket.of(ChronoUnit.DAYS.between(slice.orderDate(), asOf)).ordinal()] += slice.amountMinor();
+            oldest = slice.orderDate();
+        }
+        return new ShopAgingDto(shop.userId(), shop.shopName(), Money.ofMinor(allocation.dueAmountMinor()),
+                Money.ofMinor(buckets[Bucket.DAYS_0_TO_7.ordinal()]), Money.ofMinor(buckets[Bucket.DAYS_8_TO_30.ordinal()]),
+                Money.ofMinor(buckets[Bucket.DAYS_31_TO_60.ordinal()]), Money.ofMinor(buckets[Bucket.OVER_60.ordinal()]),
+                Money.ofMinor(allocation.unallocatedMinor()), oldest);
+    }
+
+    private static ReceivablesAgingDto summarize(final LocalDate asOf, final List<ShopAgingDto> rows) {
+        Money due = Money.ZERO;
+        Money days0To7 = Money.ZERO;
+        Money days8To30 = Money.ZERO;
+        Money days31To60 = Money.ZERO;
+        Money over60Days = Money.ZERO;
+        Money unallocated = Money.ZERO;
+        for (final ShopAgingDto row : rows) {
+            due = due.plus(row.getDueAmount());
+            days0To7 = days0To7.plus(row.getDays0To7());
+            days8To30 = days8To30.plus(row.getDays8To30());
+            days31To60 = days31To60.plus(row.getDays31To60());
+            over60Days = over60Days.plus(row.getOver60Days());
+            unallocated = unallocated.plus(row.getUnallocated());
+        }
+        return new ReceivablesAgingDto(asOf, due, days0To7, days8To30, days31To60, over60Days, unallocated, rows);
+    }
+
+    private enum Bucket {
+        DAYS_0_TO_7,
+        DAYS_8_TO_30,
+        DAYS_31_TO_60,
+        OVER_60;
+
+        // Orders dated after the report date count as current.
+        static Bucket of(final long days) {
+            if (days <= 7) {
+                return DAYS_0_TO_7;
+            }
+            if (days <= 30) {
+                return DAYS_8_TO_30;
+            }
+            return days <= 60 ? DAYS_31_TO_60 : OVER_60;
+        }
+    }
+
+    /**
+     * What a shop still owes on each order, newest first, for the due amount it was computed from.
+     */
+    private record Allocation(long dueAmountMinor, List<OrderSlice> slices, long unallocatedMinor) {
+    }
+
+    private record OrderSlice(LocalDate orderDate, long amountMinor) {
+    }
+}
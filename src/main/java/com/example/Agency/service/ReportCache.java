@@ -0,0 +1,418 @@
+package com.example.Agency.service;
+
+import com.example.Agency.event.OrdersChangedEvent;
+import com.example.Agency.event.PaymentsChangedEvent;
+import com.example.Agency.event.ProductsChangedEvent;
+import com.example.Agency.event.SalesAggregateRebuiltEvent;
+import com.example.Agency.event.UserChangedEvent;
+import com.example.Agency.report.ReportFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Keeps generated reports, keyed by report type, format, date and shift, so repeat downloads skip the
+ * query and the rendering.
+ * <p>
+ * Small reports are held in memory and large ones in files under the cache directory; both are evicted
+ * least recently used first once their size budget is exceeded, and expire after the TTL. Each report
+ * carries an ETag derived from its content. Entries are dropped when an order or payment that could
+ * change them commits, and a report whose generation overlapped such a commit is served but not kept.
+ * <p>
+ * {@link #get} returns a handle that holds its report open: a file evicted or invalidated while a
+ * download is being served is deleted only once the last handle on it is closed.
+ */
+@Slf4j
+@Component
+public class ReportCache {
+
+    private final Path directory;
+    private final Duration ttl;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final long memoryEntryLimit;
+
+    // Access-ordered, so iteration starts at the least recently used entry. Guarded by this.
+    private final LinkedHashMap<ReportKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    // Bumped by every invalidation; a report is only stored if no invalidation ran while it was generated.
+    private long invalidations;
+
+    public ReportCache(@Value("${app.reports.cache.dir:${java.io.tmpdir}/agency-report-cache}") final Path directory,
+                       @Value("${app.reports.cache.ttl:10m}") final Duration ttl,
+                       @Value("${app.reports.cache.max-memory:64MB}") final DataSize maxMemory,
+                       @Value("${app.reports.cache.max-disk:1GB}") final DataSize maxDisk,
+                       @Value("${app.reports.cache.memory-entry-limit:2MB}") final DataSize memoryEntryLimit) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.ttl = ttl;
+        this.maxMemoryBytes = maxMemory.toBytes();
+        this.maxDiskBytes = maxDisk.toBytes();
+        this.memoryEntryLimit = memoryEntryLimit.toBytes();
+        deleteLeftoverFiles();
+    }
+
+    /**
+     * Returns the cached report for the key, generating and storing it on a miss.
+     *
+     * @param key    the report type, date and shift
+     * @param writer writes the report and returns the ids of the users whose balances it shows
+     * @return a handle on the report; read it with {@link CachedReport#openStream()}, whose stream closes the
+     * handle, or {@link CachedReport#close() close} it unread
+     * @throws IOException if the report cannot be written
+     */
+    public CachedReport get(final ReportKey key, final ReportWriter writer) throws IOException {
+        final long invalidationsAtStart;
+        synchronized (this) {
+            final Entry cached = entries.get(key);
+            if (cached != null && cached.expiresAt.isAfter(Instant.now())) {
+                return open(cached);
+            }
+            if (cached != null) {
+                release(entries.remove(key));
+            }
+            invalidationsAtStart = invalidations;
+        }
+
+        final Entry generated = generate(writer);
+        final CachedReport report;
+        synchronized (this) {
+            if (invalidations != invalidationsAtStart || generated.size > maxDiskBytes) {
+                // The data changed while this report was being built, or it is too large to keep; its file
+                // goes when the download is closed.
+                generated.released = true;
+                return open(generated);
+            }
+            final Entry previous = entries.put(key, generated);
+            if (previous != null) {
+                release(previous);
+            }
+            account(generated, 1);
+            // Opened before evicting, so the new report cannot be deleted before it is served.
+            report = open(generated);
+            evict();
+        }
+        log.debug("Cached {} report ({} bytes, {})", key, generated.size, generated.file == null ? "memory" : "disk");
+        return report;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrdersChanged(final OrdersChangedEvent event) {
+        // Orders change the report for their date and shift, and the due amount of the user wherever it is shown.
+        invalidate(key -> covers(key, event.orderDate(), event.orderDate())
+                        && (key.shift() == null || key.shift() == event.orderShift()),
+                event.userId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPaymentsChanged(final PaymentsChangedEvent event) {
+        invalidate(key -> false, event.userId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSalesAggregateRebuilt(final SalesAggregateRebuiltEvent event) {
+        invalidate(key -> covers(key, event.from(), event.to()), null);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsChanged(final ProductsChangedEvent event) {
+        // Product names label report columns.
+        invalidate(key -> true, null);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(final UserChangedEvent event) {
+        // Shop names label report rows.
+        invalidate(key -> false, event.userId());
+    }
+
+    private synchronized void invalidate(final Predicate<ReportKey> affected, final String userId) {
+        invalidations++;
+        final Iterator<Map.Entry<ReportKey, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<ReportKey, Entry> entry = it.next();
+            if (affected.test(entry.getKey()) || (userId != null && entry.getValue().userIds.contains(userId))) {
+                it.remove();
+                release(entry.getValue());
+            }
+        }
+    }
+
+    private Entry generate(final ReportWriter writer) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        // Reports are spooled to a file while written, so a large one never has to fit in the heap.
+        final Path file = directory.resolve(UUID.randomUUID() + ".report");
+        final Set<String> userIds;
+        try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), digest)) {
+            userIds = writer.write(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        final long size = Files.size(file);
+        final String etag = '"' + HexFormat.of().formatHex(digest.digest()) + '"';
+        final Instant expiresAt = Instant.now().plus(ttl);
+        if (size <= memoryEntryLimit) {
+            final byte[] content = Files.readAllBytes(file);
+            Files.delete(file);
+            return new Entry(etag, size, content, null, Set.copyOf(userIds), expiresAt);
+        }
+        return new Entry(etag, size, null, file, Set.copyOf(userIds), expiresAt);
+    }
+
+    private void evict() {
+        final Instant now = Instant.now();
+        final Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext() && (memoryBytes > maxMemoryBytes || diskBytes > maxDiskBytes)) {
+            final Entry entry = it.next();
+            final boolean overBudget = entry.file == null ? memoryBytes > maxMemoryBytes : diskBytes > maxDiskBytes;
+            if (overBudget || !entry.expiresAt.isAfter(now)) {
+                it.remove();
+                release(entry);
+            }
+        }
+    }
+
+    // Called under the lock, so a report cannot be released and deleted between lookup and open.
+    private CachedReport open(final Entry entry) {
+        entry.readers++;
+        return new CachedReport(entry);
+    }
+
+    private void release(final Entry entry) {
+        account(entry, -1);
+        entry.released = true;
+        if (entry.readers == 0) {
+            delete(entry);
+        }
+    }
+
+    private synchronized void close(final Entry entry) {
+        entry.readers--;
+        if (entry.released && entry.readers == 0) {
+            delete(entry);
+        }
+    }
+
+    private void delete(final Entry entry) {
+        if (entry.file != null) {
+            try {
+                Files.deleteIfExists(entry.file);
+            } catch (IOException e) {
+                log.warn("Could not delete cached report {}", entry.file, e);
+            }
+        }
+    }
+
+    private void account(final Entry entry, final int sign) {
+        if (entry.file == null) {
+            memoryBytes += sign * entry.size;
+        } else {
+            diskBytes += sign * entry.size;
+        }
+    }
+
+    private void deleteLeftoverFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".report"))::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Keys for all dates, and keys whose date could not be read as a date, are covered by every change.
+    private static boolean covers(final ReportKey key, final LocalDate from, final LocalDate to) {
+        final LocalDate day = key.day();
+        if (day == null) {
+            return true;
+        }
+        return (from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to));
+    }
+
+    /**
+     * Identifies a report: its type and format, and the date and shift it covers; null date or shift means all.
+     * A date written in any of the accepted forms is normalized to ISO, so invalidation finds it by day.
+     */
+    public record ReportKey(String type, ReportFormat format, String date, Boolean shift) {
+
+        private static final List<DateTimeFormatter> DATE_FORMATS = Stream.of(
+                        DateTimeFormatter.ISO_LOCAL_DATE, DateTimeFormatter.ofPattern("uuuu-M-d"),
+                        DateTimeFormatter.ofPattern("uuuu/M/d"), DateTimeFormatter.BASIC_ISO_DATE)
+                .map(format -> format.withResolverStyle(ResolverStyle.STRICT))
+                .toList();
+
+        public ReportKey {
+            if (date != null) {
+                final LocalDate day = parse(date.trim());
+                if (day != null) {
+                    date = day.toString();
+                }
+            }
+        }
+
+        /**
+         * The date as a LocalDate, or null if the key covers all dates or its date is not a valid date.
+         */
+        public LocalDate day() {
+            return date == null ? null : parse(date);
+        }
+
+        private static LocalDate parse(final String value) {
+            for (final DateTimeFormatter format : DATE_FORMATS) {
+                try {
+                    return LocalDate.parse(value, format);
+                } catch (DateTimeParseException e) {
+                    // Not in this form; try the next.
+                }
+            }
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ReportWriter {
+        /**
+         * Writes the report.
+         *
+         * @return the ids of the users whose current balances appear in the report
+         */
+        Set<String> write(OutputStream out) throws IOException;
+    }
+
+    // A generated report. readers and released are guarded by the cache.
+    private static final class Entry {
+        private final String etag;
+        private final long size;
+        private final byte[] content;
+        private final Path file;
+        private final Set<String> userIds;
+        private final Instant expiresAt;
+        private int readers;
+        private boolean released;
+
+        private Entry(final String etag, final long size, final byte[] content, final Path file,
+                      final Set<String> userIds, final Instant expiresAt) {
+            this.etag = etag;
+            this.size = size;
+            this.content = content;
+            this.file = file;
+            this.userIds = userIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A handle on a generated report and its ETag. The report stays readable until the handle is closed,
+     * directly or by closing the stream from {@link #openStream()}.
+     */
+    public final class CachedReport implements Closeable {
+        private final Entry entry;
+        private boolean closed;
+
+        private CachedReport(final Entry entry) {
+            this.entry = entry;
+        }
+
+        public String etag() {
+            return entry.etag;
+        }
+
+        public long size() {
+            return entry.size;
+        }
+
+        /**
+         * Checks an If-None-Match header against this report's ETag.
+         */
+        public boolean matches(final String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(entry.etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Opens the report content. Closing the stream closes this handle.
+         */
+        public InputStream openStream() throws IOException {
+            if (entry.content != null) {
+                close();
+                return new ByteArrayInputStream(entry.content);
+            }
+            final InputStream in;
+            try {
+                in = Files.newInputStream(entry.file);
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+            return new FilterInputStream(in) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        CachedReport.this.close();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            synchronized (ReportCache.this) {
+                if (!closed) {
+                    closed = true;
+                    ReportCache.this.close(entry);
+                }
+            }
+        }
+    }
+}
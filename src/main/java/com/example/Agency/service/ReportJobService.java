@@ -0,0 +1,191 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.ReportJobStatus;
+import com.example.Agency.dto.response.ReportJob;
+import com.example.Agency.dto.reuests.ReportJobRequest;
+import com.example.Agency.report.ReportFormat;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Generates reports in the background so large exports do not hold request threads.
+ * <p>
+ * Jobs run on a fixed pool of report workers with a bounded queue; once the queue is full new jobs are
+ * refused rather than piling up. Each report is spooled to a file in the job directory, where it stays
+ * for the retention period after completion so the client can poll for the job and download it.
+ */
+@Slf4j
+@Service
+public class ReportJobService {
+
+    private final ReportService reportService;
+    private final Path directory;
+    private final Duration retention;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    public ReportJobService(final ReportService reportService,
+                            @Value("${app.reports.jobs.dir:${java.io.tmpdir}/agency-report-jobs}") final Path directory,
+                            @Value("${app.reports.jobs.workers:2}") final int workers,
+                            @Value("${app.reports.jobs.queue-capacity:10}") final int queueCapacity,
+                            @Value("${app.reports.jobs.retention:1h}") final Duration retention) throws IOException {
+        this.reportService = reportService;
+        this.directory = Files.createDirectories(directory);
+        this.retention = retention;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "report-job-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        deleteSpooledFiles();
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        // Jobs live in memory only, so their files are of no use after a restart.
+        deleteSpooledFiles();
+    }
+
+    /**
+     * Queues a report for generation.
+     *
+     * @param request the report type, format, date and shift
+     * @return the job to poll for the outcome
+     * @throws IllegalArgumentException    if the request is incomplete or names an unknown report type
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public ReportJob submit(final ReportJobRequest request) {
+        if (ReportService.SHOP_SALES_RANGE.equals(request.getType())) {
+            reportService.checkRange(request.getDate(), request.getToDate());
+        } else if (ReportService.SHOP_SALES.equals(request.getType()) || ReportService.SALES_SUMMARY.equals(request.getType())) {
+            if (request.getDate() == null || request.getShift() == null) {
+                throw new IllegalArgumentException("date and shift are required");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown report type: " + request.getType());
+        }
+        final ReportFormat format = ReportFormat.fromParam(request.getFormat());
+
+        final String jobId = UUID.randomUUID().toString();
+        final boolean range = ReportService.SHOP_SALES_RANGE.equals(request.getType());
+        final ReportJob job = new ReportJob(jobId, request.getType(), format, request.getDate(),
+                range ? request.getToDate() : null, range ? null : request.getShift(),
+                ReportJobStatus.QUEUED, null, null, Instant.now(), null);
+        jobs.put(jobId, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            log.warn("Report job queue full, refusing {} report for {}", request.getType(), request.getDate());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ReportJob> getJob(final String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Opens the spooled report of a READY job.
+     */
+    public InputStream openResult(final ReportJob job) throws IOException {
+        return Files.newInputStream(resultFile(job.getJobId()));
+    }
+
+    public String fileName(final ReportJob job) {
+        if (ReportService.SHOP_SALES_RANGE.equals(job.getType())) {
+            return ReportService.rangeFileName(job.getDate(), job.getToDate(), job.getFormat());
+        }
+        return ReportService.fileName(job.getType(), job.getDate().toString(), job.getShift(), job.getFormat());
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.jobs.purge-interval:PT5M}")
+    public void purgeExpired() {
+        final Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (job.getCompletedAt() == null || !job.getCompletedAt().isBefore(cutoff)) {
+                return false;
+            }
+            deleteQuietly(resultFile(job.getJobId()));
+            return true;
+        });
+    }
+
+    private void run(final ReportJob queued) {
+        final String jobId = queued.getJobId();
+        update(queued, ReportJobStatus.RUNNING, null, null, null);
+        final Path file = resultFile(jobId);
+        final long started = System.currentTimeMillis();
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                if (ReportService.SHOP_SALES_RANGE.equals(queued.getType())) {
+                    reportService.generateShopSalesRangeReport(queued.getDate(), queued.getToDate(), queued.getFormat(), out);
+                } else if (ReportService.SHOP_SALES.equals(queued.getType())) {
+                    reportService.generateShopSalesReport(queued.getDate(), queued.getShift(), queued.getFormat(), out);
+                } else {
+                    reportService.generateSalesSummaryReport(queued.getDate().toString(), queued.getShift(),
+                            queued.getFormat(), out);
+                }
+            }
+            update(queued, ReportJobStatus.READY, Files.size(file), null, Instant.now());
+            log.info("Report job {} ({} {}) finished in {} ms", jobId, queued.getType(), queued.getDate(),
+                    System.currentTimeMillis() - started);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            update(queued, ReportJobStatus.FAILED, null, e.getMessage(), Instant.now());
+            log.error("Report job {} ({} {}) failed", jobId, queued.getType(), queued.getDate(), e);
+        }
+    }
+
+    private void update(final ReportJob job, final ReportJobStatus status, final Long sizeBytes, final String error,
+                        final Instant completedAt) {
+        jobs.put(job.getJobId(), new ReportJob(job.getJobId(), job.getType(), job.getFormat(), job.getDate(),
+                job.getToDate(), job.getShift(), status, sizeBytes, error, job.getSubmittedAt(), completedAt));
+    }
+
+    private Path resultFile(final String jobId) {
+        return directory.resolve(jobId + ".report");
+    }
+
+    private void deleteSpooledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".report"))::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void deleteQuietly(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete report job file {}", file, e);
+        }
+    }
+}
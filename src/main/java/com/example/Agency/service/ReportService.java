@@ -1,372 +1,207 @@
 package com.example.Agency.service;
 
-import com.example.Agency.dto.ShopReport;
-import com.example.Agency.repository.OrderRepository;
-import com.example.Agency.repository.ReportRepository;
+import com.example.Agency.report.ReportFormat;
+import com.example.Agency.report.ReportRenderer;
+import com.example.Agency.report.SalesSummary;
+import com.example.Agency.report.ShopProductPivot;
+import com.example.Agency.repository.ReportQueryRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import jakarta.servlet.ServletOutputStream;
-import jakarta.servlet.http.HttpServletResponse;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.util.*;
-
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the report queries, aggregates the rows once and hands the result to the renderer for the
+ * requested format.
+ * <p>
+ * Range reports aggregate each day on its own virtual thread and merge the daily pivots. A semaphore
+ * shared by all range reports caps how many day queries run at once, so the work is bounded by the
+ * connection pool and cores rather than by the number of days.
+ */
 @Slf4j
 @Service
 public class ReportService {
 
-    private final ReportRepository reportRepository;
-    private final OrderRepository orderRepository;
-
-    public ReportService(final ReportRepository reportRepository, final OrderRepository orderRepository) {
-        this.reportRepository = reportRepository;
-        this.orderRepository = orderRepository;
+    // Report types, as used in report job requests and cache keys
+    public static final String SHOP_SALES = "excel";
+    public static final String SALES_SUMMARY = "export";
+    public static final String SHOP_SALES_RANGE = "range";
+
+    private final ReportQueryRepository reportQueryRepository;
+    private final Map<ReportFormat, ReportRenderer> renderers = new EnumMap<>(ReportFormat.class);
+    private final Semaphore dayQueryPermits;
+    private final int maxRangeDays;
+
+    public ReportService(final ReportQueryRepository reportQueryRepository, final List<ReportRenderer> renderers,
+                         @Value("${app.reports.range.parallelism:4}") final int rangeParallelism,
+                         @Value("${app.reports.range.max-days:92}") final int maxRangeDays) {
+        this.reportQueryRepository = reportQueryRepository;
+        for (final ReportRenderer renderer : renderers) {
+            this.renderers.put(renderer.format(), renderer);
+        }
+        this.dayQueryPermits = new Semaphore(rangeParallelism);
+        this.maxRangeDays = maxRangeDays;
     }
 
     /**
-     * Generates an Excel report and writes it to the HttpServletResponse.
+     * Generates the sales summary report and writes it to the given stream.
      *
      * @param orderDate the order date in String format
      * @param shift     the shift indicator (true for morning, false for evening)
-     * @param response  HttpServletResponse to write the report to
+     * @param format    the output format
+     * @param out       the stream to write the report to; it is not closed
+     * @return the ids of the users whose balances appear in the report; none for this report
      * @throws IOException if an I/O error occurs
      */
-    public void generateExcelReport(final String orderDate, final Boolean shift, final HttpServletResponse response) throws IOException {
-        final List<Object[]> results = reportRepository.fetchReportData(orderDate, shift);
-
-        try (Workbook workbook = new XSSFWorkbook()) {
-            final Sheet sheet = workbook.createSheet("Sales Report");
-
-            // Create cell styles
-            final CellStyle boldStyle = createBoldCellStyle(workbook);
-
-            // Supplier's Shop Name Header (merged A1 to F1)
-            final Row shopNameRow = sheet.createRow(0);
-            final Cell shopNameCell = shopNameRow.createCell(0);
-            shopNameCell.setCellValue("Supplier: XYZ Supplier Shop");
-            shopNameCell.setCellStyle(boldStyle);
-            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
-
-            // Date and Shift Header
-            final Row dateShiftRow = sheet.createRow(1);
-            dateShiftRow.createCell(0).setCellValue("Date: " + orderDate);
-            dateShiftRow.createCell(1).setCellValue("Shift: " + (shift ? "AM" : "PM"));
-
-            // Column Headers (starting Row 4)
-            final Row headerRow = sheet.createRow(3);
-            final String[] headers = {"Date", "Shift", "Product Name", "Quantity", "Total Amount", "Total Cost"};
-            for (int i = 0; i < headers.length; i++) {
-                final Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(boldStyle);
-            }
-
-            // Data Rows (starting Row 5)
-            int rowNum = 4;
-            BigDecimal netTotalAmount = BigDecimal.ZERO;
-            BigDecimal netCostAmount = BigDecimal.ZERO;
-
-            for (final Object[] row : results) {
-                final Row dataRow = sheet.createRow(rowNum++);
-                dataRow.createCell(0).setCellValue((String) row[0]);
-
-                final Boolean isMorning = (row[1] instanceof Boolean)
-                        ? (Boolean) row[1]
-                        : Boolean.valueOf(row[1].toString());
-                dataRow.createCell(1).setCellValue(isMorning ? "Morning" : "Evening");
-
-                dataRow.createCell(2).setCellValue((String) row[2]);
-                dataRow.createCell(3).setCellValue(((Number) row[3]).longValue());
-
-                final BigDecimal totalAmount = BigDecimal.valueOf(((Number) row[4]).doubleValue());
-                final BigDecimal totalCost = BigDecimal.valueOf(((Number) row[5]).doubleValue());
-
-                dataRow.createCell(4).setCellValue(totalAmount.doubleValue());
-                dataRow.createCell(5).setCellValue(totalCost.doubleValue());
-
-                netTotalAmount = netTotalAmount.add(totalAmount);
-                netCostAmount = netCostAmount.add(totalCost);
-            }
-
-            // Net Totals Rows
-            final Row totalRow = sheet.createRow(rowNum++);
-            totalRow.createCell(3).setCellValue("Net Total Amount:");
-            totalRow.createCell(4).setCellValue(netTotalAmount.doubleValue());
-
-            final Row costRow = sheet.createRow(rowNum);
-            costRow.createCell(3).setCellValue("Net Cost Amount:");
-            costRow.createCell(5).setCellValue(netCostAmount.doubleValue());
-
-            // Auto-size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
-
-            // Prepare response with dynamic filename
-            final String filename = "Sales_Report_" + orderDate + "_" + (shift ? "Morning" : "Evening") + ".xlsx";
-            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-            response.setHeader("Content-Disposition", "attachment; filename=" + filename);
-
-            try (ServletOutputStream outputStream = response.getOutputStream()) {
-                workbook.write(outputStream);
-                outputStream.flush();
-            }
-            log.info("Excel report generated successfully for date {} and shift {}", orderDate, shift ? "Morning" : "Evening");
-        }
+    public Set<String> generateSalesSummaryReport(final String orderDate, final Boolean shift, final ReportFormat format,
+                                                  final OutputStream out) throws IOException {
+        final SalesSummary summary = SalesSummary.of(orderDate, shift,
+                reportQueryRepository.findSalesSummary(orderDate, shift));
+        renderer(format).renderSalesSummary(summary, out);
+        log.info("{} sales summary generated successfully for date {} and shift {}", format, orderDate,
+                shift == null ? "both" : shift ? "Morning" : "Evening");
+        return Set.of();
     }
 
     /**
-     * Generates an Excel report and returns it as a ByteArrayInputStream.
+     * Generates the shop-by-product report and writes it to the given stream.
      *
      * @param orderDate the order date as LocalDate
      * @param shift     the shift indicator (true for morning, false for evening)
-     * @return ByteArrayInputStream containing the Excel report
+     * @param format    the output format
+     * @param out       the stream to write the report to; it is not closed
+     * @return the ids of the users whose due amounts appear in the report
      * @throws IOException if an I/O error occurs
      */
-    public ByteArrayInputStream generateExcelReport(final LocalDate orderDate, final Boolean shift) throws IOException {
-        final List<Object[]> reportData = orderRepository.findReportData(orderDate, shift);
-
-        final List<String> productNames = new ArrayList<>();
-        final Map<String, ShopReport> shopReportMap = new HashMap<>();
-
-        // Process report data and build ShopReport mapping
-        for (final Object[] row : reportData) {
-            final String shopName = (String) row[0];
-            final String productName = (String) row[1];
-            final BigDecimal quantity = BigDecimal.valueOf(((Number) row[2]).doubleValue());
-            final BigDecimal totalAmount = BigDecimal.valueOf(((Number) row[3]).doubleValue());
-            final BigDecimal dueAmount = BigDecimal.valueOf(((Number) row[4]).doubleValue());
-            final BigDecimal totalCost = BigDecimal.valueOf(((Number) row[5]).doubleValue());
+    public Set<String> generateShopSalesReport(final LocalDate orderDate, final boolean shift, final ReportFormat format,
+                                               final OutputStream out) throws IOException {
+        final ShopProductPivot pivot = ShopProductPivot.of(reportQueryRepository.findShopProductSales(orderDate, shift));
+        renderer(format).renderShopProductSales(orderDate, shift, pivot, out);
+        log.info("{} shop sales report generated successfully for date {} and shift {}", format, orderDate,
+                shift ? "AM" : "PM");
+        return pivot.userIds();
+    }
 
-            if (!productNames.contains(productName)) {
-                productNames.add(productName);
-            }
+    /**
+     * Generates the shop-by-product report for a date range, with both shifts of every day, and writes
+     * it to the given stream.
+     *
+     * @param from   the first order date
+     * @param to     the last order date, inclusive
+     * @param format the output format
+     * @param out    the stream to write the report to; it is not closed
+     * @return the ids of the users whose due amounts appear in the report
+     * @throws IOException if an I/O error occurs
+     */
+    public Set<String> generateShopSalesRangeReport(final LocalDate from, final LocalDate to, final ReportFormat format,
+                                                    final OutputStream out) throws IOException {
+        checkRange(from, to);
+        final long started = System.currentTimeMillis();
+        final SortedMap<LocalDate, ShopProductPivot> days = aggregateDays(from, to);
+        final ShopProductPivot total = ShopProductPivot.merge(new ArrayList<>(days.values()));
+        renderer(format).renderShopProductRange(from, to, days, total, out);
+        log.info("{} shop sales range report generated for {} to {} ({} days with sales) in {} ms", format, from, to,
+                days.size(), System.currentTimeMillis() - started);
+        return total.userIds();
+    }
 
-            final ShopReport shopReport = shopReportMap.getOrDefault(shopName, new ShopReport());
-            shopReport.setShopName(shopName);
-            shopReport.setDueAmount(dueAmount);
-            shopReport.addProductData(productName, quantity, totalAmount, totalCost);
-            shopReportMap.put(shopName, shopReport);
+    /**
+     * Checks a range report request.
+     *
+     * @throws IllegalArgumentException if a date is missing, the range is reversed or it is too long
+     */
+    public void checkRange(final LocalDate from, final LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
         }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        if (ChronoUnit.DAYS.between(from, to) + 1 > maxRangeDays) {
+            throw new IllegalArgumentException("Range reports cover at most " + maxRangeDays + " days");
+        }
+    }
 
-        try (final XSSFWorkbook workbook = new XSSFWorkbook();
-             final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            final Sheet sheet = workbook.createSheet("sales_report");
-            final int totalColumns = 1 + productNames.size() + 3;
-            int rowNum = 0;
-
-            // Title Row with Date and Shift
-            final CellStyle titleStyle = createTitleCellStyle(workbook);
-            final String titleText = String.format("Rajdeep sales - Date: %s - Shift: %s", orderDate, shift ? "AM" : "PM");
-            final Row titleRow = sheet.createRow(rowNum++);
-            final Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue(titleText);
-            titleCell.setCellStyle(titleStyle);
-            sheet.addMergedRegion(new CellRangeAddress(titleRow.getRowNum(), titleRow.getRowNum(), 0, totalColumns - 1));
-
-            // Blank row for spacing
-            rowNum++;
-
-            // Header Row
-            final CellStyle headerCellStyle = createHeaderCellStyle(workbook);
-            final Row headerRow = sheet.createRow(rowNum++);
-            int colNum = 0;
-            Cell cell = headerRow.createCell(colNum++);
-            cell.setCellValue("Shop Name");
-            cell.setCellStyle(headerCellStyle);
-
-            for (final String productName : productNames) {
-                cell = headerRow.createCell(colNum++);
-                cell.setCellValue(productName);
-                cell.setCellStyle(headerCellStyle);
+    private SortedMap<LocalDate, ShopProductPivot> aggregateDays(final LocalDate from, final LocalDate to) throws IOException {
+        final Map<LocalDate, Future<ShopProductPivot>> pending = new LinkedHashMap<>();
+        final SortedMap<LocalDate, ShopProductPivot> days = new TreeMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                final LocalDate orderDate = day;
+                pending.put(orderDate, executor.submit(() -> aggregateDay(orderDate)));
             }
-            cell = headerRow.createCell(colNum++);
-            cell.setCellValue("Total Amount");
-            cell.setCellStyle(headerCellStyle);
-            cell = headerRow.createCell(colNum++);
-            cell.setCellValue("Due Amount");
-            cell.setCellStyle(headerCellStyle);
-            cell = headerRow.createCell(colNum++);
-            cell.setCellValue("Amount Paid");
-            cell.setCellStyle(headerCellStyle);
-
-            // Create common cell styles for data rows
-            final CellStyle dataCellStyle = createDataCellStyle(workbook);
-            final CellStyle numericCellStyle = createNumericCellStyle(workbook);
-            final CellStyle integerCellStyle = createIntegerCellStyle(workbook);
-            final CellStyle summaryCellStyle = createSummaryCellStyle(workbook);
-
-            BigDecimal overallTotalAmount = BigDecimal.ZERO;
-            BigDecimal overallTotalDue = BigDecimal.ZERO;
-            BigDecimal overallTotalCost = BigDecimal.ZERO;
-            final Map<String, Integer> productSummary = new HashMap<>();
-
-            // Data Rows
-            for (final ShopReport report : shopReportMap.values()) {
-                final Row dataRow = sheet.createRow(rowNum++);
-                colNum = 0;
-                cell = dataRow.createCell(colNum++);
-                cell.setCellValue(report.getShopName());
-                cell.setCellStyle(dataCellStyle);
-
-                for (final String productName : productNames) {
-                    final BigDecimal quantity = report.getProductQuantities().getOrDefault(productName, BigDecimal.ZERO);
-                    cell = dataRow.createCell(colNum++);
-                    cell.setCellValue(quantity.intValue());
-                    cell.setCellStyle(integerCellStyle);
-                    productSummary.put(productName, productSummary.getOrDefault(productName, 0) + quantity.intValue());
+            try {
+                for (final Map.Entry<LocalDate, Future<ShopProductPivot>> entry : pending.entrySet()) {
+                    final ShopProductPivot pivot = entry.getValue().get();
+                    if (pivot.shopCount() > 0) {
+                        days.put(entry.getKey(), pivot);
+                    }
                 }
-
-                cell = dataRow.createCell(colNum++);
-                cell.setCellValue(report.getTotalAmount().doubleValue());
-                cell.setCellStyle(numericCellStyle);
-                overallTotalAmount = overallTotalAmount.add(report.getTotalAmount());
-
-                cell = dataRow.createCell(colNum++);
-                cell.setCellValue(report.getDueAmount().doubleValue());
-                cell.setCellStyle(numericCellStyle);
-                overallTotalDue = overallTotalDue.add(report.getDueAmount());
-
-                cell = dataRow.createCell(colNum++);
-                cell.setCellValue(""); // Amount Paid remains empty
-                cell.setCellStyle(dataCellStyle);
-
-                overallTotalCost = overallTotalCost.add(report.getTotalCost());
-            }
-
-            // Blank row for spacing before summary
-            rowNum++;
-
-            // Summary Row (Totals)
-            final Row summaryRow = sheet.createRow(rowNum++);
-            colNum = 0;
-            cell = summaryRow.createCell(colNum++);
-            cell.setCellValue("Total");
-            cell.setCellStyle(summaryCellStyle);
-
-            for (final String productName : productNames) {
-                cell = summaryRow.createCell(colNum++);
-                cell.setCellValue(productSummary.get(productName));
-                cell.setCellStyle(summaryCellStyle);
-            }
-            cell = summaryRow.createCell(colNum++);
-            cell.setCellValue(overallTotalAmount.doubleValue());
-            cell.setCellStyle(summaryCellStyle);
-            cell = summaryRow.createCell(colNum++);
-            cell.setCellValue(overallTotalDue.doubleValue());
-            cell.setCellStyle(summaryCellStyle);
-            cell = summaryRow.createCell(colNum++);
-            cell.setCellValue("");
-            cell.setCellStyle(summaryCellStyle);
-
-            // Extra spacing rows before cost and profit rows
-            rowNum += 2;
-            final int totalAmountColIndex = 1 + productNames.size();
-
-            // Total Cost Amount Row
-            final Row costRow = sheet.createRow(rowNum++);
-            cell = costRow.createCell(totalAmountColIndex);
-            cell.setCellValue("Total Cost Amount");
-            cell.setCellStyle(summaryCellStyle);
-            cell = costRow.createCell(totalAmountColIndex + 1);
-            cell.setCellValue(overallTotalCost.doubleValue());
-            cell.setCellStyle(numericCellStyle);
-
-            // Net Profit Row
-            final Row profitRow = sheet.createRow(rowNum++);
-            cell = profitRow.createCell(totalAmountColIndex);
-            cell.setCellValue("Net Profit (Revenue - Cost)");
-            cell.setCellStyle(summaryCellStyle);
-            cell = profitRow.createCell(totalAmountColIndex + 1);
-            cell.setCellValue(overallTotalAmount.subtract(overallTotalCost).doubleValue());
-            cell.setCellStyle(numericCellStyle);
-
-            // Auto-size all columns
-            for (int i = 0; i < totalColumns; i++) {
-                sheet.autoSizeColumn(i);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                throw new InterruptedIOException("Range report interrupted");
+            } catch (ExecutionException e) {
+                // One failed day fails the report; the days still queued are not worth running.
+                executor.shutdownNow();
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("Range report day failed", e.getCause());
             }
-
-            workbook.write(out);
-            log.info("Excel report generated successfully for date {} and shift {}", orderDate, shift ? "AM" : "PM");
-            return new ByteArrayInputStream(out.toByteArray());
         }
+        return days;
     }
 
-    /////////////// Helper Methods for Cell Styles ///////////////
-
-    private CellStyle createBoldCellStyle(final Workbook workbook) {
-        final CellStyle style = workbook.createCellStyle();
-        final Font font = workbook.createFont();
-        font.setBold(true);
-        style.setFont(font);
-        return style;
-    }
-
-    private CellStyle createTitleCellStyle(final Workbook workbook) {
-        final CellStyle style = workbook.createCellStyle();
-        final Font font = workbook.createFont();
-        font.setBold(true);
-        font.setFontHeightInPoints((short) 16);
-        style.setFont(font);
-        style.setAlignment(HorizontalAlignment.CENTER);
-        return style;
-    }
-
-    private CellStyle createHeaderCellStyle(final Workbook workbook) {
-        final CellStyle style = workbook.createCellStyle();
-        final Font font = workbook.createFont();
-        font.setBold(true);
-        font.setFontHeightInPoints((short) 12);
-        style.setFont(font);
-        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        style.setAlignment(HorizontalAlignment.CENTER);
-        setThinBorders(style);
-        return style;
-    }
-
-    private CellStyle createDataCellStyle(final Workbook workbook) {
-        final CellStyle style = workbook.createCellStyle();
-        setThinBorders(style);
-        return style;
-    }
-
-    private CellStyle createNumericCellStyle(final Workbook workbook) {
-        final CellStyle style = createDataCellStyle(workbook);
-        final DataFormat dataFormat = workbook.createDataFormat();
-        style.setDataFormat(dataFormat.getFormat("#,##0.00"));
-        return style;
+    private ShopProductPivot aggregateDay(final LocalDate orderDate) throws InterruptedException {
+        dayQueryPermits.acquire();
+        try {
+            return ShopProductPivot.of(reportQueryRepository.findShopProductSales(orderDate, null));
+        } finally {
+            dayQueryPermits.release();
+        }
     }
 
-    private CellStyle createIntegerCellStyle(final Workbook workbook) {
-        final CellStyle style = createDataCellStyle(workbook);
-        final DataFormat dataFormat = workbook.createDataFormat();
-        style.setDataFormat(dataFormat.getFormat("0"));
-        return style;
+    /**
+     * The download file name for a report.
+     */
+    public static String fileName(final String type, final String orderDate, final Boolean shift, final ReportFormat format) {
+        final String name = SHOP_SALES.equals(type)
+                ? String.format("sales_report_%s_%s", orderDate, Boolean.TRUE.equals(shift) ? "AM" : "PM")
+                : "Sales_Report_" + orderDate + "_" + (Boolean.TRUE.equals(shift) ? "Morning" : "Evening");
+        return name + "." + format.extension();
     }
 
-    private CellStyle createSummaryCellStyle(final Workbook workbook) {
-        final CellStyle style = workbook.createCellStyle();
-        final Font font = workbook.createFont();
-        font.setBold(true);
-        style.setFont(font);
-        style.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        setThinBorders(style);
-        return style;
+    /**
+     * The download file name for a range report.
+     */
+    public static String rangeFileName(final LocalDate from, final LocalDate to, final ReportFormat format) {
+        return String.format("sales_report_%s_to_%s.%s", from, to, format.extension());
     }
 
-    private void setThinBorders(final CellStyle style) {
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
+    private ReportRenderer renderer(final ReportFormat format) {
+        final ReportRenderer renderer = renderers.get(format);
+        if (renderer == null) {
+            throw new IllegalArgumentException("No renderer for report format " + format);
+        }
+        return renderer;
     }
 }
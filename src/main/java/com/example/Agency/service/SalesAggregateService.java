@@ -0,0 +1,60 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.event.SalesAggregateRebuiltEvent;
+import com.example.Agency.repository.SalesAggregateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Backfills and checks the daily sales aggregate that the reports read.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesAggregateService {
+
+    private final SalesAggregateRepository salesAggregateRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Recomputes the aggregate from the order lines. Orders written to the range while this runs wait
+     * for it to commit, so large ranges are best rebuilt outside business hours.
+     *
+     * @param from the first order date to rebuild, or null for no lower bound
+     * @param to   the last order date to rebuild, or null for no upper bound
+     * @return an ApiResponse with the number of aggregate rows written
+     */
+    @Transactional
+    public ApiResponse<Integer> rebuild(final LocalDate from, final LocalDate to) {
+        final long started = System.currentTimeMillis();
+        final int rows = salesAggregateRepository.rebuild(from, to);
+        log.info("Rebuilt daily sales aggregate for {} to {}: {} rows in {} ms", from, to, rows,
+                System.currentTimeMillis() - started);
+        eventPublisher.publishEvent(new SalesAggregateRebuiltEvent(from, to));
+        return new ApiResponse<>(true, "Sales aggregate rebuilt", rows, null);
+    }
+
+    /**
+     * Compares the aggregate with a fresh aggregation of the order lines.
+     *
+     * @param from the first order date to check, or null for no lower bound
+     * @param to   the last order date to check, or null for no upper bound
+     * @return an ApiResponse with the number of mismatching (date, shift, product, shop) keys
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse<Long> verify(final LocalDate from, final LocalDate to) {
+        final long mismatches = salesAggregateRepository.countMismatches(from, to);
+        if (mismatches > 0) {
+            log.warn("Daily sales aggregate has {} mismatching keys between {} and {}", mismatches, from, to);
+            return new ApiResponse<>(false, "Sales aggregate does not match order lines", mismatches,
+                    mismatches + " mismatching keys, rebuild the range");
+        }
+        return new ApiResponse<>(true, "Sales aggregate matches order lines", 0L, null);
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.Agency.service;
 
 import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.event.UserChangedEvent;
 import com.example.Agency.model.User;
 import com.example.Agency.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +19,7 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ApiResponse<List<User>> getAllUsers() {
         List<User> users = userRepository.findAll();
@@ -37,8 +40,11 @@ public class UserService {
 
     @Transactional
     public ApiResponse<String> deleteUser(String userID) {
-        if (userRepository.existsById(userID)) {
-            userRepository.deleteById(userID); // Delete the user
+        Optional<User> user = userRepository.findById(userID);
+        if (user.isPresent()) {
+            userRepository.delete(user.get()); // Delete the user
+            // Cached principals and user lookups are dropped once the transaction commits.
+            eventPublisher.publishEvent(new UserChangedEvent(userID, user.get().getMobileNumber()));
             log.info("Successfully deleted user with id: {}", userID);
             return new ApiResponse<>(true, "Successfully Deleted!", null, null);
         } else {
@@ -59,6 +65,7 @@ public class UserService {
             // You might skip updating the password field if not needed
 
             User savedUser = userRepository.save(user); // Save updated user to database
+            eventPublisher.publishEvent(new UserChangedEvent(userId, savedUser.getMobileNumber()));
             log.info("Updated user with id: {}", userId);
             return new ApiResponse<>(true, "User updated successfully", savedUser, null);
         } else {
@@ -0,0 +1,88 @@
+package com.example.Agency.sheet;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV record by record, so only the current row is held in memory.
+ * <p>
+ * Quoted fields may contain commas, doubled quotes and line breaks. Lines may end in CRLF or LF, a
+ * leading UTF-8 byte order mark is skipped, and rows with only empty cells are left out.
+ */
+@Component
+public class CsvSheetReader {
+
+    /**
+     * Parses the stream and passes every row to the handler.
+     *
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    public void read(final InputStream in, final SheetRowHandler handler) throws IOException {
+        final Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        final List<String> cells = new ArrayList<>();
+        final StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        int rowNumber = 1;
+        int c = reader.read();
+        if (c == '\uFEFF') {
+            c = reader.read();
+        }
+        for (; c != -1; c = reader.read()) {
+            if (quoted) {
+                if (c != '"') {
+                    cell.append((char) c);
+                    continue;
+                }
+                reader.mark(1);
+                if (reader.read() == '"') {
+                    cell.append('"');
+                } else {
+                    reader.reset();
+                    quoted = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> quoted = true;
+                case ',' -> {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                }
+                case '\r' -> {
+                    // Part of a CRLF line end; a lone CR inside a row is dropped.
+                }
+                case '\n' -> {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                    emit(rowNumber++, cells, handler);
+                }
+                default -> cell.append((char) c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field in row " + rowNumber);
+        }
+        if (cell.length() > 0 || !cells.isEmpty()) {
+            cells.add(cell.toString());
+            emit(rowNumber, cells, handler);
+        }
+    }
+
+    private static void emit(final int rowNumber, final List<String> cells, final SheetRowHandler handler) {
+        for (final String value : cells) {
+            if (!value.isBlank()) {
+                handler.row(rowNumber, cells);
+                break;
+            }
+        }
+        cells.clear();
+    }
+}
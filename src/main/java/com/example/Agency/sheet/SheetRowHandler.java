@@ -0,0 +1,19 @@
+package com.example.Agency.sheet;
+
+import java.util.List;
+
+/**
+ * Receives the rows of an uploaded sheet one at a time, as they are parsed.
+ */
+@FunctionalInterface
+public interface SheetRowHandler {
+
+    /**
+     * Handles one row.
+     *
+     * @param rowNumber the 1-based row number, as a spreadsheet shows it; the header is normally row 1
+     * @param cells     the cell values as text, with blank cells as empty strings; the list is reused for
+     *                  the next row, so copy what has to be kept
+     */
+    void row(int rowNumber, List<String> cells);
+}
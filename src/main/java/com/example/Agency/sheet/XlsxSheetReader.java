@@ -0,0 +1,117 @@
+package com.example.Agency.sheet;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the first sheet of an XLSX workbook through POI's SAX event API, so the sheet is never built as
+ * a workbook in memory; only the shared strings table is loaded.
+ * <p>
+ * Cell values are passed on raw rather than as Excel displays them: numbers as plain decimals without
+ * grouping or rounding, and date-formatted cells as ISO dates.
+ */
+@Component
+public class XlsxSheetReader {
+
+    /**
+     * Parses the workbook file and passes every row of its first sheet to the handler.
+     *
+     * @throws IllegalArgumentException if the file is not a readable XLSX workbook
+     */
+    public void read(final Path file, final SheetRowHandler handler) throws IOException {
+        final OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IllegalArgumentException("Not a readable XLSX workbook: " + e.getMessage(), e);
+        }
+        try {
+            final XSSFReader reader = new XSSFReader(pkg);
+            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            final Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("The workbook has no sheets");
+            }
+            try (InputStream sheet = sheets.next()) {
+                final XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null, strings,
+                        new RowCollector(handler), new RawValueFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IllegalArgumentException("Not a readable XLSX workbook: " + e.getMessage(), e);
+        } finally {
+            // Closing a read-only package would try to save it.
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Collects the cells of each row, filling in the blank cells the sheet XML leaves out.
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final SheetRowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+        private boolean hasContent;
+
+        private RowCollector(final SheetRowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(final int rowNum) {
+            cells.clear();
+            hasContent = false;
+        }
+
+        @Override
+        public void endRow(final int rowNum) {
+            if (hasContent) {
+                handler.row(rowNum + 1, cells);
+            }
+        }
+
+        @Override
+        public void cell(final String cellReference, final String formattedValue, final XSSFComment comment) {
+            final int column = cellReference == null ? cells.size() : new CellReference(cellReference).getCol();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            final String value = formattedValue == null ? "" : formattedValue;
+            cells.add(value);
+            hasContent |= !value.isBlank();
+        }
+    }
+
+    private static final class RawValueFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(final double value, final int formatIndex, final String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value).toLocalDate().toString();
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.Agency.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Small thread-safe LRU cache whose entries also expire a fixed time after they were written.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public BoundedTtlCache(final int maxEntries, final Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized Optional<V> get(final K key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - entry.writtenAt() > ttlNanos) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.value());
+    }
+
+    public synchronized void put(final K key, final V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    public synchronized void remove(final K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void removeIf(final Predicate<K> keyPredicate) {
+        entries.keySet().removeIf(keyPredicate);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Drops expired entries; get() already ignores them, this only frees the memory early.
+     */
+    public synchronized void evictExpired() {
+        final long now = System.nanoTime();
+        for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().writtenAt() > ttlNanos) {
+                it.remove();
+            }
+        }
+    }
+
+    private record Entry<V>(V value, long writtenAt) {
+    }
+}
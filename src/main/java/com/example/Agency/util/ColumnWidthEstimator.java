@@ -0,0 +1,85 @@
+package com.example.Agency.util;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.Arrays;
+
+/**
+ * Estimates spreadsheet column widths from the values written, in a single pass.
+ * <p>
+ * Replaces {@code Sheet.autoSizeColumn}, which re-reads every cell and measures it with AWT font metrics
+ * and cannot see rows a streaming workbook has already flushed. Widths are counted in characters of the
+ * default font, which is close enough for the plain text and numbers in the reports.
+ */
+public final class ColumnWidthEstimator {
+
+    private static final int PADDING_CHARS = 2;
+    private static final int MAX_WIDTH_CHARS = 255;
+    // Header and title cells use a bold font, which runs about a tenth wider.
+    private static final double BOLD_FACTOR = 1.1;
+
+    private int[] widths;
+
+    public ColumnWidthEstimator(final int columns) {
+        this.widths = new int[Math.max(columns, 1)];
+    }
+
+    public void text(final int column, final String value) {
+        if (value != null) {
+            grow(column, value.length());
+        }
+    }
+
+    public void boldText(final int column, final String value) {
+        if (value != null) {
+            grow(column, (int) Math.ceil(value.length() * BOLD_FACTOR));
+        }
+    }
+
+    /**
+     * Records an integer formatted as "0".
+     */
+    public void integer(final int column, final long value) {
+        grow(column, digits(value) + (value < 0 ? 1 : 0));
+    }
+
+    /**
+     * Records an amount in paise formatted as "#,##0.00".
+     */
+    public void amount(final int column, final long minor) {
+        final long units = Math.abs(minor / 100);
+        final int digits = digits(units);
+        grow(column, digits + (digits - 1) / 3 + 3 + (minor < 0 ? 1 : 0));
+    }
+
+    /**
+     * Sets the width of every observed column on the sheet.
+     */
+    public void applyTo(final Sheet sheet) {
+        for (int column = 0; column < widths.length; column++) {
+            if (widths[column] > 0) {
+                final int chars = Math.min(widths[column] + PADDING_CHARS, MAX_WIDTH_CHARS);
+                sheet.setColumnWidth(column, chars * 256);
+            }
+        }
+    }
+
+    private void grow(final int column, final int chars) {
+        if (column >= widths.length) {
+            widths = Arrays.copyOf(widths, Math.max(column + 1, widths.length * 2));
+        }
+        if (chars > widths[column]) {
+            widths[column] = chars;
+        }
+    }
+
+    private static int digits(final long value) {
+        long remaining = Math.abs(value);
+        int digits = 1;
+        while (remaining >= 10) {
+            remaining /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
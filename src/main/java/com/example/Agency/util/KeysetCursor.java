@@ -0,0 +1,48 @@
+package com.example.Agency.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Position in a keyset-paginated listing: the sort key and id of the last row of the previous page.
+ * <p>
+ * Clients receive it as an opaque URL-safe token and send it back unchanged to fetch the next page.
+ *
+ * @param sortKey the sort column of the last row, as an ISO date (yyyy-MM-dd)
+ * @param id      the id of the last row, breaking ties between rows with the same sort key
+ */
+public record KeysetCursor(String sortKey, String id) {
+
+    private static final char SEPARATOR = '|';
+    private static final Pattern ISO_DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    public String encode() {
+        final byte[] raw = (sortKey + SEPARATOR + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the cursor sent by the client; may be null or blank for the first page
+     * @return the decoded cursor, or null for the first page
+     * @throws IllegalArgumentException if the token was not produced by this class
+     */
+    public static KeysetCursor decode(final String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        final String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        final int separator = raw.indexOf(SEPARATOR);
+        if (separator < 0 || separator == raw.length() - 1 || !ISO_DATE.matcher(raw.substring(0, separator)).matches()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new KeysetCursor(raw.substring(0, separator), raw.substring(separator + 1));
+    }
+}
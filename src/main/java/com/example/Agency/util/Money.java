@@ -0,0 +1,106 @@
+package com.example.Agency.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of money held as a whole number of minor units (paise).
+ * <p>
+ * Arithmetic is exact long arithmetic. Hot loops can skip the object entirely and add
+ * {@link #minor()} values into a primitive long, wrapping the total only once at the end.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    private static final long MINOR_PER_UNIT = 100L;
+
+    public static final Money ZERO = new Money(0L);
+
+    private final long minor;
+
+    private Money(final long minor) {
+        this.minor = minor;
+    }
+
+    public static Money ofMinor(final long minor) {
+        return minor == 0L ? ZERO : new Money(minor);
+    }
+
+    public static Money of(final double amount) {
+        return ofMinor(toMinor(amount));
+    }
+
+    public static Money of(final BigDecimal amount) {
+        return ofMinor(amount.movePointRight(SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+
+    /**
+     * Converts a floating-point amount, as stored in the database, to minor units.
+     *
+     * @throws IllegalArgumentException if the amount is NaN, infinite or too large for a long of minor units
+     */
+    public static long toMinor(final double amount) {
+        final double scaled = amount * MINOR_PER_UNIT;
+        // Math.round would turn NaN into 0 and clamp anything beyond the long range.
+        if (!Double.isFinite(scaled) || Math.abs(scaled) >= 0x1p63) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        return Math.round(scaled);
+    }
+
+    public static double toDouble(final long minor) {
+        return (double) minor / MINOR_PER_UNIT;
+    }
+
+    public long minor() {
+        return minor;
+    }
+
+    public double toDouble() {
+        return toDouble(minor);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public Money plus(final Money other) {
+        return ofMinor(Math.addExact(minor, other.minor));
+    }
+
+    public Money minus(final Money other) {
+        return ofMinor(Math.subtractExact(minor, other.minor));
+    }
+
+    public Money times(final long quantity) {
+        return ofMinor(Math.multiplyExact(minor, quantity));
+    }
+
+    public boolean isZero() {
+        return minor == 0L;
+    }
+
+    public int signum() {
+        return Long.signum(minor);
+    }
+
+    @Override
+    public int compareTo(final Money other) {
+        return Long.compare(minor, other.minor);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || (o instanceof Money other && minor == other.minor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minor);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.Agency.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps {@link Money} attributes onto the existing floating-point money columns.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, Double> {
+
+    @Override
+    public Double convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toDouble();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Double amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.Agency.web;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A request whose body has been read up front and hashed, so it can be compared with the body of an
+ * earlier request before the handler runs, and then read again by the handler.
+ * <p>
+ * Bodies up to the memory limit are kept in memory; larger ones, such as bulk order uploads, are spooled
+ * to a temporary file that {@link #discard()} deletes.
+ */
+final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+    private final Path file;
+    private final String sha256;
+
+    private BufferedBodyRequest(final HttpServletRequest request, final byte[] body, final Path file,
+                                final String sha256) {
+        super(request);
+        this.body = body;
+        this.file = file;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Reads and hashes the whole body of the request.
+     *
+     * @param request     the request to read
+     * @param memoryLimit the largest body kept in memory, in bytes
+     */
+    static BufferedBodyRequest read(final HttpServletRequest request, final int memoryLimit) throws IOException {
+        final MessageDigest digest = sha256();
+        final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[8192];
+        Path file = null;
+        OutputStream spool = null;
+        try (InputStream in = request.getInputStream()) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+                if (spool == null && memory.size() + read > memoryLimit) {
+                    file = Files.createTempFile("idempotent-request-", ".body");
+                    spool = Files.newOutputStream(file);
+                    memory.writeTo(spool);
+                }
+                if (spool != null) {
+                    spool.write(chunk, 0, read);
+                } else {
+                    memory.write(chunk, 0, read);
+                }
+            }
+            if (spool != null) {
+                spool.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (spool != null) {
+                try {
+                    spool.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+        final String hash = HexFormat.of().formatHex(digest.digest());
+        return file != null
+                ? new BufferedBodyRequest(request, null, file, hash)
+                : new BufferedBodyRequest(request, memory.toByteArray(), null, hash);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Hex SHA-256 of the body.
+     */
+    String sha256Hex() {
+        return sha256;
+    }
+
+    /**
+     * Deletes the spooled body, if any. Called once the request has been processed.
+     */
+    void discard() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        return new BodyInputStream(body != null ? new ByteArrayInputStream(body) : Files.newInputStream(file));
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        final String encoding = getCharacterEncoding();
+        final Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    @Override
+    public int getContentLength() {
+        return body != null ? body.length : super.getContentLength();
+    }
+
+    private static final class BodyInputStream extends ServletInputStream {
+        private final InputStream in;
+        private boolean finished;
+
+        private BodyInputStream(final InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = in.read();
+            finished = b == -1;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int read = in.read(buffer, offset, length);
+            finished = read == -1;
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(final ReadListener readListener) {
+            throw new UnsupportedOperationException("Buffered request bodies are read synchronously");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.Agency.web;
+
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Replays the stored response when an order or payment POST is retried with the same Idempotency-Key,
+ * so the retry never reaches OrderService or PaymentService. Runs after the security filter chain.
+ * <p>
+ * The SHA-256 of the request body is stored with the response, and a key reused for a different body is
+ * rejected instead of being answered with the response to an unrelated request.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final List<String> PATH_PREFIXES = List.of("/api/v1/orders", "/api/v1/payment");
+    private static final int IN_MEMORY_BODY_LIMIT = 1 << 20;
+
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod()) || request.getHeader(HEADER) == null) {
+            return true;
+        }
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        return PATH_PREFIXES.stream().noneMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        final String idempotencyKey = request.getHeader(HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        final String principal = authentication != null ? authentication.getName() : "anonymous";
+        final String path = request.getRequestURI();
+        final String recordKey = idempotencyService.recordKey(principal, request.getMethod(), path, idempotencyKey);
+
+        if (isMultipart(request)) {
+            process(request, response, filterChain, recordKey, path, partsHash(request));
+            return;
+        }
+        final BufferedBodyRequest buffered = BufferedBodyRequest.read(request, IN_MEMORY_BODY_LIMIT);
+        try {
+            process(buffered, response, filterChain, recordKey, path, buffered.sha256Hex());
+        } finally {
+            buffered.discard();
+        }
+    }
+
+    private void process(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String recordKey, String path, String requestHash) throws ServletException, IOException {
+        if (replayIfStored(response, recordKey, requestHash)) {
+            return;
+        }
+        if (!idempotencyService.begin(recordKey)) {
+            writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+            return;
+        }
+
+        try {
+            // A request with the same key may have completed between the first lookup and begin().
+            if (replayIfStored(response, recordKey, requestHash)) {
+                return;
+            }
+            final ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            try {
+                filterChain.doFilter(request, wrapper);
+                // Only successful outcomes are remembered; a failed request may be retried for real.
+                if (HttpStatus.valueOf(wrapper.getStatus()).is2xxSuccessful()) {
+                    idempotencyService.store(recordKey, path, new IdempotencyService.StoredResponse(
+                            wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray(), requestHash));
+                }
+            } finally {
+                wrapper.copyBodyToResponse();
+            }
+        } finally {
+            idempotencyService.end(recordKey);
+        }
+    }
+
+    // Replays the stored response for the key, or rejects the request if the key was used for a different body.
+    private boolean replayIfStored(HttpServletResponse response, String recordKey, String requestHash) throws IOException {
+        final Optional<IdempotencyService.StoredResponse> stored = idempotencyService.find(recordKey);
+        if (stored.isEmpty()) {
+            return false;
+        }
+        // Records stored before request hashes were kept match any body.
+        if (stored.get().requestHash() != null && !stored.get().requestHash().equals(requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a request with a different body");
+        } else {
+            replay(response, stored.get());
+        }
+        return true;
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        final String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    // The container has already spooled the parts, and reading them here leaves them in place for the handler.
+    private static String partsHash(HttpServletRequest request) throws ServletException, IOException {
+        final MessageDigest digest = BufferedBodyRequest.sha256();
+        final byte[] chunk = new byte[8192];
+        for (final Part part : request.getParts()) {
+            digest.update((part.getName() + '\0' + part.getSubmittedFileName() + '\0').getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = part.getInputStream()) {
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    digest.update(chunk, 0, read);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyService.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.body() != null) {
+            response.setContentLength(stored.body().length);
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String error) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse<>(false, "Idempotency check failed", null, error));
+    }
+}
@@ -0,0 +1,61 @@
+-- Schema as previously generated by Hibernate (ddl-auto: update).
+-- Databases created before migrations were introduced are baselined at this version and skip this script.
+
+CREATE TABLE `user` (
+    user_id       VARCHAR(255) NOT NULL,
+    user_name     VARCHAR(255) NOT NULL,
+    shop_name     VARCHAR(255) NOT NULL,
+    address       VARCHAR(255) NOT NULL,
+    mobile_number VARCHAR(255) NOT NULL,
+    password_hash VARCHAR(255) NOT NULL,
+    due_amount    DOUBLE,
+    advance       DOUBLE,
+    role          ENUM ('ADMIN', 'RETAILER') NOT NULL,
+    PRIMARY KEY (user_id)
+);
+
+CREATE TABLE product (
+    product_id     VARCHAR(255) NOT NULL,
+    product_name   VARCHAR(100) NOT NULL,
+    unit_price     DOUBLE NOT NULL,
+    status         ENUM ('AVAILABLE', 'UNAVAILABLE') NOT NULL,
+    original_price DOUBLE NOT NULL,
+    product_image  VARCHAR(255),
+    PRIMARY KEY (product_id)
+);
+
+CREATE TABLE orders (
+    order_id        VARCHAR(255) NOT NULL,
+    user_id         VARCHAR(255),
+    order_date      DATE NOT NULL,
+    order_time      TIME(6),
+    total_amount    DOUBLE NOT NULL,
+    order_shift     BIT NOT NULL,
+    cost_amount     DOUBLE NOT NULL,
+    PRIMARY KEY (order_id),
+    CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES `user` (user_id)
+);
+
+CREATE TABLE order_details (
+    order_detail_id VARCHAR(255) NOT NULL,
+    order_id        VARCHAR(255),
+    product_id      VARCHAR(255),
+    quantity        INTEGER NOT NULL,
+    price           DOUBLE,
+    cost            DOUBLE,
+    subtotal        DOUBLE,
+    cost_subtotal   DOUBLE,
+    PRIMARY KEY (order_detail_id),
+    CONSTRAINT fk_order_details_order FOREIGN KEY (order_id) REFERENCES orders (order_id),
+    CONSTRAINT fk_order_details_product FOREIGN KEY (product_id) REFERENCES product (product_id)
+);
+
+CREATE TABLE payments (
+    payment_id   VARCHAR(255) NOT NULL,
+    user_id      VARCHAR(255),
+    payment_date DATE NOT NULL,
+    amount_paid  DOUBLE NOT NULL,
+    recived_by   VARCHAR(255),
+    PRIMARY KEY (payment_id),
+    CONSTRAINT fk_payments_user FOREIGN KEY (user_id) REFERENCES `user` (user_id)
+);
@@ -0,0 +1,18 @@
+-- Keys behind the lookups on the order, payment and login paths.
+-- Each unique key replaces the foreign-key index on its leading column, which MySQL then no longer needs.
+-- Fails if duplicate rows already exist; those have to be merged by hand before upgrading.
+
+-- OrderRepository.findByUserUserIdAndOrderDateAndOrderShift and the order header upsert
+ALTER TABLE orders
+    ADD CONSTRAINT uk_orders_user_date_shift UNIQUE (user_id, order_date, order_shift);
+
+-- OrderDetailRepository.findByOrderOrderIdAndProductProductId and the order line upsert
+ALTER TABLE order_details
+    ADD CONSTRAINT uk_order_details_order_product UNIQUE (order_id, product_id);
+
+-- PaymentsRepository.findByUserUserId, in payment date order
+CREATE INDEX idx_payments_user_date ON payments (user_id, payment_date);
+
+-- UserRepository.findByMobileNumber (login); one account per mobile number
+ALTER TABLE `user`
+    ADD CONSTRAINT uk_user_mobile_number UNIQUE (mobile_number);
@@ -0,0 +1,19 @@
+-- Order lines summed per day, shift, product and shop; maintained by OrderService in the order's transaction
+-- and read by the sales reports instead of aggregating order_details on every call.
+CREATE TABLE daily_product_sales (
+    order_date   DATE NOT NULL,
+    order_shift  BIT NOT NULL,
+    product_id   VARCHAR(255) NOT NULL,
+    user_id      VARCHAR(255) NOT NULL,
+    quantity     BIGINT NOT NULL,
+    total_amount DOUBLE NOT NULL,
+    total_cost   DOUBLE NOT NULL,
+    PRIMARY KEY (order_date, order_shift, product_id, user_id)
+);
+
+INSERT INTO daily_product_sales (order_date, order_shift, product_id, user_id, quantity, total_amount, total_cost)
+SELECT o.order_date, o.order_shift, od.product_id, o.user_id,
+       SUM(od.quantity), SUM(COALESCE(od.subtotal, 0)), SUM(COALESCE(od.cost_subtotal, 0))
+FROM orders o
+JOIN order_details od ON o.order_id = od.order_id
+GROUP BY o.order_date, o.order_shift, od.product_id, o.user_id;
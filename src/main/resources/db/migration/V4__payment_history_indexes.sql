@@ -0,0 +1,10 @@
+-- Keyset pagination of the payment history by (payment_date, payment_id), newest first.
+
+-- Unfiltered and date-range listings
+CREATE INDEX idx_payments_date_id ON payments (payment_date, payment_id);
+
+-- Listings filtered by collector
+CREATE INDEX idx_payments_received_date ON payments (recived_by, payment_date, payment_id);
+
+-- Listings filtered by user: idx_payments_user_date already ends in payment_date, and InnoDB appends
+-- payment_id to every secondary index, so it serves the same order.
@@ -0,0 +1,38 @@
+-- Every change to a user's due amount or advance, appended by BalanceService in the transaction that
+-- makes it. Rows are never updated or deleted; the user row holds the running result.
+CREATE TABLE balance_ledger (
+    entry_id      BIGINT NOT NULL AUTO_INCREMENT,
+    user_id       VARCHAR(255) NOT NULL,
+    entry_type    VARCHAR(32) NOT NULL,
+    reference_id  VARCHAR(255),
+    business_date DATE,
+    due_delta     DOUBLE NOT NULL,
+    advance_delta DOUBLE NOT NULL,
+    recorded_at   DATETIME(3) NOT NULL,
+    PRIMARY KEY (entry_id)
+);
+
+-- Replay after a snapshot, and statements over a period of one user
+CREATE INDEX idx_balance_ledger_user_entry ON balance_ledger (user_id, entry_id);
+CREATE INDEX idx_balance_ledger_user_recorded ON balance_ledger (user_id, recorded_at);
+
+-- Users with activity since the last daily snapshot
+CREATE INDEX idx_balance_ledger_recorded ON balance_ledger (recorded_at);
+
+-- A user's balance after all ledger entries up to last_entry_id. Taken every N entries and daily, so the
+-- balance at any time is the latest snapshot before it plus a short replay.
+CREATE TABLE balance_snapshot (
+    user_id       VARCHAR(255) NOT NULL,
+    last_entry_id BIGINT NOT NULL,
+    snapshot_at   DATETIME(3) NOT NULL,
+    due_amount    DOUBLE NOT NULL,
+    advance       DOUBLE NOT NULL,
+    PRIMARY KEY (user_id, last_entry_id)
+);
+
+CREATE INDEX idx_balance_snapshot_user_time ON balance_snapshot (user_id, snapshot_at);
+
+-- Opening balances: history before the ledger existed is only known as the balance at this point.
+INSERT INTO balance_snapshot (user_id, last_entry_id, snapshot_at, due_amount, advance)
+SELECT user_id, 0, CURRENT_TIMESTAMP(3), COALESCE(due_amount, 0), COALESCE(advance, 0)
+FROM `user`;
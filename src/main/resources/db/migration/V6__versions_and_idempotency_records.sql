@@ -0,0 +1,24 @@
+-- Schema the application came to depend on before migrations were introduced. Databases baselined at V1
+-- were created without it, so it is added here rather than in V1.
+
+-- Optimistic lock on User (JPA @Version)
+ALTER TABLE `user`
+    ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+-- Catalog version an order was last priced from
+ALTER TABLE orders
+    ADD COLUMN catalog_version BIGINT;
+
+-- Keyset pagination of the order listing by (order_date, order_id), newest first
+CREATE INDEX idx_orders_date_id ON orders (order_date, order_id);
+
+-- Responses stored for POSTs carrying an Idempotency-Key header
+CREATE TABLE idempotency_record (
+    record_key   VARCHAR(64) NOT NULL,
+    request_path VARCHAR(255) NOT NULL,
+    status       INTEGER NOT NULL,
+    content_type VARCHAR(255),
+    body         MEDIUMBLOB,
+    created_at   DATETIME(6) NOT NULL,
+    PRIMARY KEY (record_key)
+);
@@ -0,0 +1,4 @@
+-- SHA-256 of the request body a stored response answered, so a key reused for a different request is
+-- rejected instead of replayed. Null for records stored before it was kept.
+ALTER TABLE idempotency_record
+    ADD COLUMN request_hash VARCHAR(64);
@@ -0,0 +1,11 @@
+-- Intake tickets whose lines have been merged into an order, written in the same transaction as the
+-- order. Journaled tickets found here on startup were committed before a crash and are not replayed.
+CREATE TABLE intake_ticket (
+    ticket_id  VARCHAR(36) NOT NULL,
+    order_id   VARCHAR(255) NOT NULL,
+    applied_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (ticket_id)
+);
+
+-- Purge of tickets past their retention
+CREATE INDEX idx_intake_ticket_applied ON intake_ticket (applied_at);
@@ -0,0 +1,55 @@
+package com.example.Agency.report;
+
+import com.example.Agency.repository.row.SalesSummaryRow;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvReportRendererTests {
+
+    private final CsvReportRenderer renderer = new CsvReportRenderer();
+
+    @Test
+    void plainFieldsAreWrittenAsIs() throws Exception {
+        assertEquals(header() + "2026-10-01,Morning,Milk,3,75.00,60.50\r\n",
+                render(row("Milk")));
+    }
+
+    @Test
+    void fieldsWithSeparatorsAreQuoted() throws Exception {
+        assertEquals(header()
+                        + "2026-10-01,Morning,\"Milk, 500ml\",3,75.00,60.50\r\n"
+                        + "2026-10-01,Morning,\"Curd\nCup\",3,75.00,60.50\r\n"
+                        + "2026-10-01,Morning,\"Ghee\r\",3,75.00,60.50\r\n",
+                render(row("Milk, 500ml"), row("Curd\nCup"), row("Ghee\r")));
+    }
+
+    @Test
+    void quotesAreDoubled() throws Exception {
+        assertEquals(header() + "2026-10-01,Morning,\"Paneer \"\"fresh\"\"\",3,75.00,60.50\r\n",
+                render(row("Paneer \"fresh\"")));
+    }
+
+    @Test
+    void missingFieldIsEmpty() throws Exception {
+        assertEquals(header() + "2026-10-01,Morning,,3,75.00,60.50\r\n", render(row(null)));
+    }
+
+    private String render(final SalesSummaryRow... rows) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.renderSalesSummary(SalesSummary.of("2026-10-01", true, List.of(rows)), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static SalesSummaryRow row(final String productName) {
+        return new SalesSummaryRow("2026-10-01", true, productName, 3, 7_500, 6_050);
+    }
+
+    private static String header() {
+        return "Date,Shift,Product Name,Quantity,Total Amount,Total Cost\r\n";
+    }
+}
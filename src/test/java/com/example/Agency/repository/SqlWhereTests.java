@@ -0,0 +1,53 @@
+package com.example.Agency.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlWhereTests {
+
+    @Test
+    void noValuesGiveNoClause() {
+        final SqlWhere where = new SqlWhere()
+                .and("o.order_date = :orderDate", "orderDate", null)
+                .and("o.user_id = :userId", "userId", null);
+
+        assertEquals("", where.sql());
+        assertEquals(0, where.params().getParameterNames().length);
+    }
+
+    @Test
+    void presentValuesAreJoinedWithAnd() {
+        final SqlWhere where = new SqlWhere()
+                .and("o.order_date = :orderDate", "orderDate", "2026-10-01")
+                .and("o.order_shift = :shift", "shift", null)
+                .and("o.user_id = :userId", "userId", "u1");
+
+        assertEquals("WHERE o.order_date = :orderDate AND o.user_id = :userId ", where.sql());
+        assertEquals("u1", where.params().getValue("userId"));
+        assertFalse(where.params().hasValue("shift"));
+    }
+
+    @Test
+    void pairedPredicateDependsOnItsFirstValue() {
+        final SqlWhere present = new SqlWhere().and("(o.order_date, o.order_id) < (:date, :id)",
+                "date", "2026-10-01", "id", "o1");
+        assertEquals("WHERE (o.order_date, o.order_id) < (:date, :id) ", present.sql());
+        assertEquals("o1", present.params().getValue("id"));
+
+        final SqlWhere absent = new SqlWhere().and("(o.order_date, o.order_id) < (:date, :id)",
+                "date", null, "id", "o1");
+        assertEquals("", absent.sql());
+        assertFalse(absent.params().hasValue("id"));
+    }
+
+    @Test
+    void boundParametersAddNoPredicate() {
+        final SqlWhere where = new SqlWhere().bind("limit", 50);
+
+        assertEquals("", where.sql());
+        assertTrue(where.params().hasValue("limit"));
+    }
+}
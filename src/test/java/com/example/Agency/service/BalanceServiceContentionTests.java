@@ -0,0 +1,143 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.UserRole;
+import com.example.Agency.dto.BalanceDto;
+import com.example.Agency.dto.BalanceStatementDto;
+import com.example.Agency.dto.LedgerEntryDto;
+import com.example.Agency.model.User;
+import com.example.Agency.repository.UserRepository;
+import com.example.Agency.util.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hammers a single shop with concurrent orders and payments and checks that no balance update is lost,
+ * neither on the user row nor in the ledger.
+ */
+@SpringBootTest
+class BalanceServiceContentionTests {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 50;
+    private static final Money ORDER_AMOUNT = Money.of(10.0);
+    private static final Money PAYMENT_AMOUNT = Money.of(4.0);
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private String userId;
+
+    @BeforeEach
+    void createUser() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        final User user = new User();
+        user.setUserName("Contention Test");
+        user.setShopName("Contention Test Shop");
+        user.setAddress("Test");
+        user.setMobileNumber(String.valueOf(9_000_000_000L + ThreadLocalRandom.current().nextInt(1_000_000)));
+        user.setPasswordHash(UUID.randomUUID().toString());
+        user.setRole(UserRole.RETAILER);
+        userId = userRepository.save(user).getUserId();
+    }
+
+    @AfterEach
+    void deleteUser() {
+        userRepository.deleteById(userId);
+    }
+
+    @Test
+    void concurrentOrdersAndPaymentsAreNotLost() throws Exception {
+        runWorkload(this::atomicOrder, this::atomicPayment);
+
+        final int operations = THREADS * OPERATIONS_PER_THREAD;
+        final Money expectedDue = ORDER_AMOUNT.minus(PAYMENT_AMOUNT).times(operations);
+        final User user = userRepository.findById(userId).orElseThrow();
+        assertEquals(expectedDue, user.getDueAmount());
+        assertEquals(Money.ZERO, user.getAdvance());
+
+        // One ledger entry per change, and the entries add up to the balance on the user row.
+        final BalanceStatementDto statement = balanceLedgerService.getStatement(userId, LocalDate.now(),
+                LocalDate.now()).getData();
+        assertEquals(2 * operations, statement.getEntries().size());
+        Money dueDeltas = Money.ZERO;
+        for (final LedgerEntryDto entry : statement.getEntries()) {
+            dueDeltas = dueDeltas.plus(entry.getDueDelta());
+        }
+        assertEquals(expectedDue, statement.getOpeningDueAmount().plus(dueDeltas));
+        assertEquals(expectedDue, statement.getClosingDueAmount());
+        assertEquals(Money.ZERO, statement.getClosingAdvance());
+        assertEquals(expectedDue, balanceLedgerService.getBalanceAt(userId, LocalDate.now()).getData().getDueAmount());
+    }
+
+    @Test
+    void overpaymentMovesExcessToAdvance() {
+        transactionTemplate.executeWithoutResult(status -> balanceService.addToDue(userId, Money.of(100.0),
+                UUID.randomUUID().toString(), LocalDate.now()));
+        transactionTemplate.executeWithoutResult(status -> balanceService.applyPayment(userId, Money.of(150.0),
+                UUID.randomUUID().toString(), LocalDate.now()));
+
+        final User user = userRepository.findById(userId).orElseThrow();
+        assertEquals(Money.ZERO, user.getDueAmount());
+        assertEquals(Money.of(50.0), user.getAdvance());
+
+        // The ledger replays to the same balance.
+        final BalanceDto balance = balanceLedgerService.getBalanceAt(userId, LocalDate.now()).getData();
+        assertEquals(Money.ZERO, balance.getDueAmount());
+        assertEquals(Money.of(50.0), balance.getAdvance());
+    }
+
+    private void runWorkload(final Runnable order, final Runnable payment) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    order.run();
+                    payment.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (final Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
+
+    private void atomicOrder() {
+        transactionTemplate.executeWithoutResult(status -> balanceService.addToDue(userId, ORDER_AMOUNT,
+                UUID.randomUUID().toString(), LocalDate.now()));
+    }
+
+    private void atomicPayment() {
+        transactionTemplate.executeWithoutResult(status -> balanceService.applyPayment(userId, PAYMENT_AMOUNT,
+                UUID.randomUUID().toString(), LocalDate.now()));
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.LedgerEntryType;
+import com.example.Agency.repository.UserRepository;
+import com.example.Agency.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The split of payments into due amount and advance, with the database updates mocked.
+ */
+class BalanceServiceTests {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 10, 1);
+
+    private UserRepository userRepository;
+    private BalanceLedgerService ledger;
+    private BalanceService balanceService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        ledger = mock(BalanceLedgerService.class);
+        balanceService = new BalanceService(userRepository, ledger);
+    }
+
+    @Test
+    void paymentWithinDueTakesTheGuardedUpdate() {
+        when(userRepository.decreaseDueAmount("u1", 40.0)).thenReturn(1);
+
+        balanceService.applyPayment("u1", Money.of(40.0), "p1", DATE);
+
+        verify(userRepository, never()).lockDueAmount(anyString());
+        verify(ledger).record("u1", List.of(payment("p1", Money.of(-40.0), Money.ZERO)));
+    }
+
+    @Test
+    void paymentOfADriftedDueSettlesItExactly() {
+        // A due amount of 0.30 that has drifted in the DOUBLE column: the guarded update sees it as too small.
+        when(userRepository.decreaseDueAmount("u1", 0.3)).thenReturn(0);
+        when(userRepository.lockDueAmount("u1")).thenReturn(0.29999999999999993);
+        when(userRepository.applyLockedPayment("u1", 0.0, 0.0)).thenReturn(1);
+
+        balanceService.applyPayment("u1", Money.of(0.3), "p1", DATE);
+
+        verify(userRepository).applyLockedPayment("u1", 0.0, 0.0);
+        verify(ledger).record("u1", List.of(payment("p1", Money.of(-0.3), Money.ZERO)));
+    }
+
+    @Test
+    void overpaymentsAreSplitInOrder() {
+        when(userRepository.decreaseDueAmount("u1", 150.0)).thenReturn(0);
+        when(userRepository.lockDueAmount("u1")).thenReturn(100.0);
+        when(userRepository.applyLockedPayment("u1", 0.0, 50.0)).thenReturn(1);
+
+        balanceService.applyPayments("u1", List.of(
+                new BalanceService.PaymentPosting("p1", DATE, Money.of(60.0)),
+                new BalanceService.PaymentPosting("p2", DATE, Money.of(60.0)),
+                new BalanceService.PaymentPosting("p3", DATE, Money.of(30.0))));
+
+        verify(ledger).record("u1", List.of(
+                payment("p1", Money.of(-60.0), Money.ZERO),
+                payment("p2", Money.of(-40.0), Money.of(20.0)),
+                payment("p3", Money.ZERO, Money.of(30.0))));
+    }
+
+    @Test
+    void unknownUserFails() {
+        when(userRepository.decreaseDueAmount(anyString(), anyDouble())).thenReturn(0);
+        when(userRepository.lockDueAmount("missing")).thenReturn(null);
+
+        assertThrows(RuntimeException.class, () -> balanceService.applyPayment("missing", Money.of(1.0), "p1", DATE));
+        verify(userRepository, never()).applyLockedPayment(anyString(), anyDouble(), anyDouble());
+    }
+
+    private static BalanceLedgerService.Change payment(final String paymentId, final Money dueDelta,
+                                                       final Money advanceDelta) {
+        return new BalanceLedgerService.Change(LedgerEntryType.PAYMENT, paymentId, DATE, dueDelta, advanceDelta);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.ProductStatus;
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.response.BatchItemResult;
+import com.example.Agency.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that every element of a bulk order body gets a result, whatever is wrong with it.
+ */
+class OrderIngestionServiceTests {
+
+    private static final String ORDER = """
+            {"order": {"userId": "u1", "orderDate": "2026-10-01", "orderShift": true},
+             "orderDetails": [{"productId": "p1", "quantity": 2}]}""";
+
+    private OrderIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        final ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.snapshot()).thenReturn(new ProductCatalog.Snapshot(1L, Map.of("p1",
+                new ProductCatalog.CatalogProduct("p1", "Milk", Money.of(30.0), Money.of(25.0), ProductStatus.AVAILABLE))));
+        final OrderChunkWriter writer = mock(OrderChunkWriter.class);
+        when(writer.write(anyList(), any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).stream()
+                .map(group -> OrderChunkWriter.Result.succeeded("order-1"))
+                .toList());
+        service = new OrderIngestionService(writer, catalog, new ObjectMapper().findAndRegisterModules(), 50);
+    }
+
+    @Test
+    void elementsThatAreNotObjectsFailWithoutEndingTheBatch() throws Exception {
+        final List<BatchItemResult> results = ingest("[1, " + ORDER + ", \"x\", [2, 3], null, " + ORDER + "]").getData();
+
+        assertEquals(6, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertFalse(results.get(4).isSuccess());
+        assertTrue(results.get(5).isSuccess());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+    }
+
+    @Test
+    void malformedElementIsReportedAfterTheItemsBeforeIt() throws Exception {
+        final ApiResponse<List<BatchItemResult>> response = ingest("[" + ORDER + ", {\"order\": ");
+
+        final List<BatchItemResult> results = response.getData();
+        assertFalse(response.isSuccess());
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(1, results.get(1).getIndex());
+    }
+
+    @Test
+    void invalidOrderFailsOnItsOwn() throws Exception {
+        final List<BatchItemResult> results = ingest("[" + ORDER + ", {\"order\": {\"userId\": \"u1\"}}]").getData();
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+    }
+
+    private ApiResponse<List<BatchItemResult>> ingest(final String body) throws Exception {
+        return service.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.Agency.service;
+
+import com.example.Agency.domain.IntakeStatus;
+import com.example.Agency.dto.OrderDetailDto;
+import com.example.Agency.dto.OrderDto;
+import com.example.Agency.dto.reuests.CreateOrderRequest;
+import com.example.Agency.model.Orders;
+import com.example.Agency.model.User;
+import com.example.Agency.repository.IntakeTicketRepository;
+import com.example.Agency.repository.UserRepository;
+import com.example.Agency.repository.row.AppliedTicketRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeServiceTests {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final OrderChunkWriter writer = mock(OrderChunkWriter.class);
+    private final IntakeTicketRepository intakeTicketRepository = mock(IntakeTicketRepository.class);
+    private final List<List<String>> writtenTickets = new CopyOnWriteArrayList<>();
+    private final CountDownLatch written = new CountDownLatch(1);
+    private OrderIntakeService service;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void journaledTicketsAlreadyAppliedAreNotReplayed() throws Exception {
+        journal("t1", "t2");
+        when(intakeTicketRepository.findApplied(anyList())).thenReturn(List.of(new AppliedTicketRow("t1", "o1")));
+        recordWrites();
+
+        service = start(writer);
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("t2")), writtenTickets);
+        assertEquals(IntakeStatus.APPLIED, service.getTicket("t1").orElseThrow().getStatus());
+        assertEquals("o1", service.getTicket("t1").orElseThrow().getOrderId());
+    }
+
+    @Test
+    void ordersStayQueuedAndJournaledWhileTheDatabaseIsDown() throws Exception {
+        journal("t1");
+        when(intakeTicketRepository.findApplied(anyList())).thenReturn(List.of());
+        final AtomicBoolean databaseDown = new AtomicBoolean(true);
+        final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            if (databaseDown.get()) {
+                throw new CannotCreateTransactionException("Could not open JDBC Connection for transaction");
+            }
+            return new SimpleTransactionStatus();
+        });
+        final User user = new User();
+        user.setUserId("u1");
+        final UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        final Orders order = new Orders();
+        order.setOrderId("o1");
+        final OrderService orderService = mock(OrderService.class);
+        when(orderService.applyOrder(any(), any(), anyList(), any())).thenReturn(order);
+
+        service = start(new OrderChunkWriter(orderService, userRepository, intakeTicketRepository, transactionManager));
+
+        // Wait for the attempt after the first requeue.
+        verify(transactionManager, timeout(5000).atLeast(2)).getTransaction(any());
+        assertEquals(IntakeStatus.QUEUED, service.getTicket("t1").orElseThrow().getStatus());
+        assertTrue(Files.readString(journalFile()).contains("\"t1\""));
+        assertFalse(Files.readString(journalFile()).contains("COMPLETED"));
+
+        databaseDown.set(false);
+        await(() -> service.getTicket("t1").orElseThrow().getStatus() == IntakeStatus.APPLIED
+                && journalSize() == 0);
+        assertEquals("o1", service.getTicket("t1").orElseThrow().getOrderId());
+        verify(orderService, times(1)).applyOrder(any(), any(), anyList(), any());
+        verify(intakeTicketRepository).markApplied(eq(List.of("t1")), eq("o1"), any());
+    }
+
+    private void recordWrites() {
+        when(writer.write(anyList(), any())).thenAnswer(invocation -> {
+            final List<? extends OrderGroup> groups = invocation.getArgument(0);
+            groups.forEach(group -> writtenTickets.add(List.copyOf(group.ticketIds())));
+            written.countDown();
+            return groups.stream().map(group -> OrderChunkWriter.Result.succeeded("o2")).toList();
+        });
+    }
+
+    private OrderIntakeService start(final OrderChunkWriter orderChunkWriter) throws Exception {
+        final ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.snapshot()).thenReturn(new ProductCatalog.Snapshot(1L, Map.of()));
+        final OrderIntakeService intake = new OrderIntakeService(orderChunkWriter, catalog, intakeTicketRepository,
+                objectMapper,
+                journalFile().toString(), 1, 50, Duration.ofHours(1), Duration.ofDays(7),
+                Duration.ofMillis(50), Duration.ofSeconds(1));
+        intake.start();
+        return intake;
+    }
+
+    private void journal(final String... ticketIds) throws Exception {
+        try (OrderIntakeJournal journal = new OrderIntakeJournal(journalFile(), objectMapper)) {
+            journal.recover();
+            for (final String ticketId : ticketIds) {
+                journal.accepted(ticketId, request());
+            }
+        }
+    }
+
+    private Path journalFile() {
+        return directory.resolve("order-intake.journal");
+    }
+
+    private long journalSize() {
+        try {
+            return Files.size(journalFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the intake worker");
+            Thread.sleep(10);
+        }
+    }
+
+    private static CreateOrderRequest request() {
+        final CreateOrderRequest request = new CreateOrderRequest();
+        request.setOrder(new OrderDto("u1", null, LocalDate.of(2026, 10, 1), null, null, true));
+        request.setOrderDetails(List.of(new OrderDetailDto("p1", 2, null, null, null, null)));
+        return request;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.ApiResponse;
+import com.example.Agency.dto.response.BatchItemResult;
+import com.example.Agency.dto.response.PaymentImportResult;
+import com.example.Agency.dto.reuests.BatchPaymentRequest;
+import com.example.Agency.repository.UserRepository;
+import com.example.Agency.sheet.CsvSheetReader;
+import com.example.Agency.sheet.XlsxSheetReader;
+import com.example.Agency.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentImportServiceTests {
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+    private PaymentImportService service;
+
+    @BeforeEach
+    void setUp() {
+        final UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllKeys()).thenReturn(List.of(userKey("u1", "98765 43210"), userKey("u2", null)));
+        when(paymentService.createBatchPayments(any())).thenAnswer(invocation -> {
+            final BatchPaymentRequest request = invocation.getArgument(0);
+            return new ApiResponse<>(true, "ok", IntStream.range(0, request.getPayments().size())
+                    .mapToObj(i -> BatchItemResult.succeeded(i, "p" + i))
+                    .toList(), null);
+        });
+        service = new PaymentImportService(paymentService, userRepository, new CsvSheetReader(), new XlsxSheetReader(),
+                2, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void validRowsAreImportedInChunksAndInvalidRowsReported() throws Exception {
+        final PaymentImportResult result = importCsv("""
+                userId,mobileNumber,amountPaid,paymentDate
+                u1,,100.50,2026-10-01
+                ,98765-43210,"1,000",01/10/2026
+                u3,,10,2026-10-01
+                u2,,12.345,2026-10-01
+                u2,,-5,2026-10-01
+                u2,,7,
+                """).getData();
+
+        assertEquals(6, result.getRows());
+        assertEquals(3, result.getImported());
+        assertEquals(Money.of(1107.50), result.getAmountImported());
+        assertEquals(List.of(4, 5, 6), result.getErrors().stream().map(BatchItemResult::getIndex).toList());
+        assertEquals("Amount '12.345' has more than 2 decimal places", result.getErrors().get(1).getError());
+
+        final ArgumentCaptor<BatchPaymentRequest> chunks = ArgumentCaptor.forClass(BatchPaymentRequest.class);
+        verify(paymentService, times(2)).createBatchPayments(chunks.capture());
+        assertEquals(List.of(2, 1), chunks.getAllValues().stream().map(chunk -> chunk.getPayments().size()).toList());
+        assertEquals("u1", chunks.getAllValues().get(0).getPayments().get(1).getUserId());
+        assertEquals(LocalDate.of(2026, 10, 2), chunks.getAllValues().get(1).getPayments().get(0).getPaymentDate());
+    }
+
+    @Test
+    void sheetThatFailsToParseImportsNothing() {
+        assertThrows(IllegalArgumentException.class, () -> importCsv("""
+                userId,amountPaid
+                u1,10
+                u2,20
+                u1,30
+                u2,"40
+                """));
+
+        verify(paymentService, never()).createBatchPayments(any());
+    }
+
+    private ApiResponse<PaymentImportResult> importCsv(final String csv) throws Exception {
+        final MockMultipartFile file = new MockMultipartFile("file", "payments.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        return service.importSheet(file, "collector", LocalDate.of(2026, 10, 2));
+    }
+
+    private static UserRepository.UserKey userKey(final String userId, final String mobileNumber) {
+        return new UserRepository.UserKey() {
+            @Override
+            public String getUserId() {
+                return userId;
+            }
+
+            @Override
+            public String getMobileNumber() {
+                return mobileNumber;
+            }
+        };
+    }
+}
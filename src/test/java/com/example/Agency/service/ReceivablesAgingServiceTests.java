@@ -0,0 +1,95 @@
+package com.example.Agency.service;
+
+import com.example.Agency.dto.ReceivablesAgingDto;
+import com.example.Agency.dto.ShopAgingDto;
+import com.example.Agency.event.PaymentsChangedEvent;
+import com.example.Agency.repository.ReportQueryRepository;
+import com.example.Agency.repository.row.OrderAmountRow;
+import com.example.Agency.repository.row.ShopDueRow;
+import com.example.Agency.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReceivablesAgingServiceTests {
+
+    private static final LocalDate AS_OF = LocalDate.of(2026, 10, 18);
+    private static final LocalDate PAGE_END = LocalDate.of(2026, 10, 10);
+
+    private final ReportQueryRepository repository = mock(ReportQueryRepository.class);
+    private ReceivablesAgingService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findShopsWithDue()).thenReturn(List.of(
+                new ShopDueRow("s1", "Shop One", 15_000),
+                new ShopDueRow("s2", "Shop Two", 5_000),
+                new ShopDueRow("s3", "Shop Three", 4_000)));
+        // Newest first: the due amount is what is left of the newest orders.
+        when(repository.findOrderAmountsPage("s1", null, null, 32)).thenReturn(List.of(
+                new OrderAmountRow(LocalDate.of(2026, 10, 15), true, 10_000),
+                new OrderAmountRow(LocalDate.of(2026, 9, 28), false, 8_000),
+                new OrderAmountRow(LocalDate.of(2026, 7, 1), true, 50_000)));
+        when(repository.findOrderAmountsPage("s2", null, null, 32)).thenReturn(List.of());
+        // A full first page of 1.00 orders, so the rest of the due amount comes from the next page.
+        when(repository.findOrderAmountsPage("s3", null, null, 32)).thenReturn(IntStream.range(0, 32)
+                .mapToObj(i -> new OrderAmountRow(PAGE_END, i % 2 == 0, 100))
+                .toList());
+        when(repository.findOrderAmountsPage("s3", PAGE_END, false, 32)).thenReturn(List.of(
+                new OrderAmountRow(LocalDate.of(2026, 8, 1), true, 500),
+                new OrderAmountRow(LocalDate.of(2026, 7, 31), false, 500)));
+        service = new ReceivablesAgingService(repository, 2);
+    }
+
+    @Test
+    void dueAmountIsAgedOverTheNewestOrders() {
+        final ReceivablesAgingDto aging = service.getAging(AS_OF).getData();
+
+        final ShopAgingDto partlyPaid = aging.getShops().get(0);
+        assertEquals(Money.ofMinor(10_000), partlyPaid.getDays0To7());
+        assertEquals(Money.ofMinor(5_000), partlyPaid.getDays8To30());
+        assertEquals(Money.ZERO, partlyPaid.getOver60Days());
+        assertEquals(LocalDate.of(2026, 9, 28), partlyPaid.getOldestUnpaidOrderDate());
+
+        final ShopAgingDto withoutOrders = aging.getShops().get(1);
+        assertEquals(Money.ofMinor(5_000), withoutOrders.getUnallocated());
+        assertNull(withoutOrders.getOldestUnpaidOrderDate());
+
+        final ShopAgingDto paged = aging.getShops().get(2);
+        assertEquals(Money.ofMinor(3_200), paged.getDays8To30());
+        assertEquals(Money.ofMinor(800), paged.getOver60Days());
+        assertEquals(LocalDate.of(2026, 7, 31), paged.getOldestUnpaidOrderDate());
+
+        assertEquals(Money.ofMinor(24_000), aging.getDueAmount());
+        assertEquals(Money.ofMinor(10_000), aging.getDays0To7());
+        assertEquals(Money.ofMinor(8_200), aging.getDays8To30());
+        assertEquals(Money.ZERO, aging.getDays31To60());
+        assertEquals(Money.ofMinor(800), aging.getOver60Days());
+        assertEquals(Money.ofMinor(5_000), aging.getUnallocated());
+    }
+
+    @Test
+    void allocationIsReusedUntilThePaymentsOfTheShopChange() {
+        service.getAging(AS_OF);
+        service.getAging(AS_OF.plusDays(30));
+        verify(repository, times(1)).findOrderAmountsPage("s1", null, null, 32);
+
+        service.onPaymentsChanged(new PaymentsChangedEvent("s1", AS_OF));
+        service.getAging(AS_OF);
+        verify(repository, times(2)).findOrderAmountsPage("s1", null, null, 32);
+        verify(repository, times(5)).findOrderAmountsPage(anyString(), any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.Agency.service;
+
+import com.example.Agency.event.OrdersChangedEvent;
+import com.example.Agency.report.ReportFormat;
+import com.example.Agency.service.ReportCache.CachedReport;
+import com.example.Agency.service.ReportCache.ReportKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReportCacheTests {
+
+    private static final byte[] LARGE = new byte[4096];
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger generated = new AtomicInteger();
+    private ReportCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Arrays.fill(LARGE, (byte) 'x');
+        // Every report goes to disk, and the disk budget holds two of them.
+        cache = new ReportCache(directory, Duration.ofMinutes(10), DataSize.ofMegabytes(1), DataSize.ofBytes(8192),
+                DataSize.ofBytes(16));
+    }
+
+    @Test
+    void invalidatedReportStaysReadableUntilItsStreamIsClosed() throws IOException {
+        final CachedReport report = cache.get(key("2025-02-18"), this::writeLarge);
+        cache.onOrdersChanged(new OrdersChangedEvent("u1", LocalDate.of(2025, 2, 18), true));
+
+        assertEquals(1, reportFiles());
+        try (InputStream in = report.openStream()) {
+            assertArrayEquals(LARGE, in.readAllBytes());
+        }
+        assertEquals(0, reportFiles());
+    }
+
+    @Test
+    void evictedReportStaysReadableUntilItsStreamIsClosed() throws IOException {
+        final CachedReport first = cache.get(key("2025-02-01"), this::writeLarge);
+        final InputStream in = first.openStream();
+        cache.get(key("2025-02-02"), this::writeLarge).close();
+        cache.get(key("2025-02-03"), this::writeLarge).close();
+
+        assertEquals(3, reportFiles());
+        assertArrayEquals(LARGE, in.readAllBytes());
+        in.close();
+        assertEquals(2, reportFiles());
+    }
+
+    @Test
+    void reportNotReadIsDeletedWhenClosed() throws IOException {
+        final CachedReport report = cache.get(key("2025-02-18"), this::writeLarge);
+        cache.onOrdersChanged(new OrdersChangedEvent("u1", LocalDate.of(2025, 2, 18), true));
+        report.close();
+        report.close();
+
+        assertEquals(0, reportFiles());
+    }
+
+    @Test
+    void datesAreNormalizedSoOrdersInvalidateThem() throws IOException {
+        assertEquals("2025-02-08", key("2025-2-8").date());
+        assertEquals("2025-02-08", key("2025/02/08").date());
+        assertEquals("2025-02-08", key("20250208").date());
+        assertEquals("2025-02-30", key("2025-02-30").date());
+        assertNull(key("2025-02-30").day());
+
+        cache.get(key("2025-2-8"), this::writeLarge).close();
+        cache.get(key("2025-02-08"), this::writeLarge).close();
+        assertEquals(1, generated.get());
+
+        cache.onOrdersChanged(new OrdersChangedEvent("u1", LocalDate.of(2025, 2, 8), true));
+        cache.get(key("2025/02/08"), this::writeLarge).close();
+        assertEquals(2, generated.get());
+    }
+
+    @Test
+    void unreadableDateIsInvalidatedByEveryOrder() throws IOException {
+        cache.get(key("yesterday"), this::writeLarge).close();
+        cache.onOrdersChanged(new OrdersChangedEvent("u1", LocalDate.of(2025, 2, 8), true));
+        cache.get(key("yesterday"), this::writeLarge).close();
+
+        assertEquals(2, generated.get());
+    }
+
+    private Set<String> writeLarge(final OutputStream out) throws IOException {
+        generated.incrementAndGet();
+        out.write(LARGE);
+        return Set.of();
+    }
+
+    private static ReportKey key(final String date) {
+        return new ReportKey(ReportService.SALES_SUMMARY, ReportFormat.CSV, date, true);
+    }
+
+    private long reportFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".report")).count();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.Agency.sheet;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvSheetReaderTests {
+
+    private final CsvSheetReader reader = new CsvSheetReader();
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        final List<List<String>> rows = read("name,note\r\n\"Shop, One\",\"said \"\"hi\"\"\nthen left\"\r\n");
+
+        assertEquals(List.of(List.of("name", "note"), List.of("Shop, One", "said \"hi\"\nthen left")), rows);
+    }
+
+    @Test
+    void byteOrderMarkAndBlankRowsAreSkipped() throws IOException {
+        final List<Integer> rowNumbers = new ArrayList<>();
+        final List<List<String>> rows = new ArrayList<>();
+        reader.read(stream("\uFEFFuserId,amount\n,\n\nu1,10"), (rowNumber, cells) -> {
+            rowNumbers.add(rowNumber);
+            rows.add(List.copyOf(cells));
+        });
+
+        assertEquals(List.of(List.of("userId", "amount"), List.of("u1", "10")), rows);
+        assertEquals(List.of(1, 4), rowNumbers);
+    }
+
+    @Test
+    void emptyTrailingCellsAreKept() throws IOException {
+        assertEquals(List.of(List.of("a", "", "")), read("a,,\n"));
+    }
+
+    @Test
+    void unterminatedQuoteIsRejected() {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> read("userId,amount\nu1,\"10\nu2,20\n"));
+        assertEquals("Unterminated quoted field in row 2", e.getMessage());
+    }
+
+    private List<List<String>> read(final String csv) throws IOException {
+        final List<List<String>> rows = new ArrayList<>();
+        reader.read(stream(csv), (rowNumber, cells) -> rows.add(List.copyOf(cells)));
+        return rows;
+    }
+
+    private static ByteArrayInputStream stream(final String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
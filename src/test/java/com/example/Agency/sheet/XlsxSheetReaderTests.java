@@ -0,0 +1,69 @@
+package com.example.Agency.sheet;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class XlsxSheetReaderTests {
+
+    @TempDir
+    Path directory;
+
+    private final XlsxSheetReader reader = new XlsxSheetReader();
+
+    @Test
+    void valuesAreReadRawWithMissingCellsFilledIn() throws IOException {
+        final Path file = directory.resolve("payments.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            final CellStyle grouped = workbook.createCellStyle();
+            grouped.setDataFormat(workbook.createDataFormat().getFormat("#,##0.0"));
+            final CellStyle date = workbook.createCellStyle();
+            date.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy"));
+
+            final Sheet sheet = workbook.createSheet();
+            final Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("userId");
+            header.createCell(1).setCellValue("amountPaid");
+            header.createCell(3).setCellValue("paymentDate");
+            final Row row = sheet.createRow(3);
+            row.createCell(0).setCellValue("u1");
+            row.createCell(1).setCellValue(12345.675);
+            row.getCell(1).setCellStyle(grouped);
+            row.createCell(3).setCellValue(LocalDate.of(2026, 10, 1));
+            row.getCell(3).setCellStyle(date);
+            workbook.write(out);
+        }
+
+        final List<Integer> rowNumbers = new ArrayList<>();
+        final List<List<String>> rows = new ArrayList<>();
+        reader.read(file, (rowNumber, cells) -> {
+            rowNumbers.add(rowNumber);
+            rows.add(List.copyOf(cells));
+        });
+
+        assertEquals(List.of(1, 4), rowNumbers);
+        assertEquals(List.of("userId", "amountPaid", "", "paymentDate"), rows.get(0));
+        assertEquals(List.of("u1", "12345.675", "", "2026-10-01"), rows.get(1));
+    }
+
+    @Test
+    void fileThatIsNotAWorkbookIsRejected() throws IOException {
+        final Path file = Files.writeString(directory.resolve("payments.xlsx"), "userId,amountPaid\n");
+
+        assertThrows(IllegalArgumentException.class, () -> reader.read(file, (rowNumber, cells) -> { }));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.Agency.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetCursorTests {
+
+    @Test
+    void roundTrips() {
+        final KeysetCursor cursor = new KeysetCursor("2026-10-01", "5b2c8f4e-0c7e-4d3a-9a61-2f1f0f6f8d11");
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void idMayContainTheSeparator() {
+        final KeysetCursor cursor = new KeysetCursor("2026-10-01", "a|b");
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        final String token = new KeysetCursor("2026-10-01", "??>>??").encode();
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void missingTokenIsTheFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+        assertNull(KeysetCursor.decode("  "));
+    }
+
+    @Test
+    void rejectsTokensItDidNotProduce() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("2026-10-01")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("2026-10-01|")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("01-10-2026|id")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("2026-10-01' OR 1=1|id")));
+    }
+
+    private static String token(final String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.Agency.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyTests {
+
+    @Test
+    void doublesRoundToTheNearestPaisa() {
+        assertEquals(30L, Money.of(0.1 + 0.2).minor());
+        assertEquals(30L, Money.of(0.29999999999999993).minor());
+        assertEquals(1999L, Money.of(19.99).minor());
+        assertEquals(-450L, Money.of(-4.5).minor());
+    }
+
+    @Test
+    void bigDecimalsRoundHalfUp() {
+        assertEquals(101L, Money.of(new BigDecimal("1.005")).minor());
+        assertEquals(100L, Money.of(new BigDecimal("1.004")).minor());
+        assertEquals(-101L, Money.of(new BigDecimal("-1.005")).minor());
+        assertEquals(12_345L, Money.of(new BigDecimal("123.45")).minor());
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < 1_000; i++) {
+            total = total.plus(Money.of(0.1));
+        }
+        assertEquals(Money.of(100.0), total);
+        assertEquals(Money.of(-0.5), Money.of(1.0).minus(Money.of(1.5)));
+        assertEquals(Money.of(29.97), Money.of(9.99).times(3));
+    }
+
+    @Test
+    void overflowThrowsInsteadOfWrapping() {
+        final Money max = Money.ofMinor(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+    }
+
+    @Test
+    void doublesThatAreNotFiniteOrOutOfRangeAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinor(Double.NEGATIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinor(1e17));
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinor(-1e17));
+        assertEquals(9_000_000_000_000_000_000L, Money.toMinor(9e16));
+    }
+
+    @Test
+    void zeroIsShared() {
+        assertSame(Money.ZERO, Money.ofMinor(0));
+        assertSame(Money.ZERO, Money.of(0.001));
+        assertSame(Money.ZERO, Money.of(5.0).minus(Money.of(5.0)));
+        assertTrue(Money.ZERO.isZero());
+    }
+
+    @Test
+    void printsTwoDecimalPlaces() {
+        assertEquals("5.00", Money.of(5.0).toString());
+        assertEquals("-0.50", Money.of(-0.5).toString());
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals(new BigDecimal("12.30"), Money.of(12.3).toBigDecimal());
+    }
+
+    @Test
+    void comparesByAmount() {
+        assertEquals(Money.of(1.1), Money.ofMinor(110));
+        assertEquals(Money.of(1.1).hashCode(), Money.ofMinor(110).hashCode());
+        assertTrue(Money.of(1.0).compareTo(Money.of(1.01)) < 0);
+        assertEquals(-1, Money.of(-3.0).signum());
+        assertEquals(0.3, Money.of(0.1 + 0.2).toDouble());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.Agency.web;
+
+import com.example.Agency.repository.IdempotencyRecordRepository;
+import com.example.Agency.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTests {
+
+    private static final String ORDER = "{\"order\": {\"userId\": \"u1\"}}";
+
+    private final AtomicInteger handled = new AtomicInteger();
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        final IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+        final IdempotencyService service = new IdempotencyService(repository, 100, Duration.ofHours(1));
+        filter = new IdempotencyFilter(service, new ObjectMapper());
+    }
+
+    @Test
+    void retryIsReplayedWithoutReachingTheHandler() throws Exception {
+        final MockHttpServletResponse first = post("key-1", ORDER, created());
+        final MockHttpServletResponse retry = post("key-1", ORDER, created());
+
+        assertEquals(1, handled.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("true", retry.getHeader("Idempotent-Replayed"));
+        assertNull(first.getHeader("Idempotent-Replayed"));
+    }
+
+    @Test
+    void keyReusedForAnotherBodyIsRejected() throws Exception {
+        post("key-1", ORDER, created());
+        final MockHttpServletResponse other = post("key-1", "{\"order\": {\"userId\": \"u2\"}}", created());
+
+        assertEquals(1, handled.get());
+        assertEquals(422, other.getStatus());
+    }
+
+    @Test
+    void failedRequestIsNotRemembered() throws Exception {
+        post("key-1", ORDER, (request, response) -> {
+            handled.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(500);
+        });
+        final MockHttpServletResponse retry = post("key-1", ORDER, created());
+
+        assertEquals(2, handled.get());
+        assertEquals(201, retry.getStatus());
+    }
+
+    @Test
+    void handlerReadsTheBodyAfterItWasHashed() throws Exception {
+        final byte[] large = new byte[3 << 20];
+        Arrays.fill(large, (byte) 'x');
+        for (final byte[] body : new byte[][]{ORDER.getBytes(StandardCharsets.UTF_8), large}) {
+            final MockHttpServletRequest request = request("key-" + body.length, body);
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) ->
+                    assertArrayEquals(body, req.getInputStream().readAllBytes()));
+        }
+    }
+
+    @Test
+    void responseStoredAfterTheFirstLookupIsReplayed() throws Exception {
+        final IdempotencyService service = mock(IdempotencyService.class);
+        final byte[] body = ORDER.getBytes(StandardCharsets.UTF_8);
+        when(service.recordKey(anyString(), anyString(), anyString(), anyString())).thenReturn("record");
+        // The first request stores its response after this one's lookup but before its begin().
+        when(service.find("record")).thenReturn(Optional.empty(), Optional.of(new IdempotencyService.StoredResponse(
+                201, "application/json", "{\"success\":true}".getBytes(StandardCharsets.UTF_8), sha256(body))));
+        when(service.begin("record")).thenReturn(true);
+        filter = new IdempotencyFilter(service, new ObjectMapper());
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", body), response, created());
+
+        assertEquals(0, handled.get());
+        assertEquals(201, response.getStatus());
+        assertEquals("{\"success\":true}", response.getContentAsString());
+        verify(service).end("record");
+        verify(service, never()).store(anyString(), anyString(), any());
+    }
+
+    @Test
+    void concurrentRequestWithTheSameKeyIsRejected() throws Exception {
+        final IdempotencyService service = mock(IdempotencyService.class);
+        when(service.recordKey(anyString(), anyString(), anyString(), anyString())).thenReturn("record");
+        when(service.find("record")).thenReturn(Optional.empty());
+        when(service.begin("record")).thenReturn(false);
+        filter = new IdempotencyFilter(service, new ObjectMapper());
+
+        final MockHttpServletResponse response = post("key-1", ORDER, created());
+
+        assertEquals(0, handled.get());
+        assertEquals(409, response.getStatus());
+    }
+
+    private FilterChain created() {
+        return (request, response) -> {
+            final HttpServletResponse http = (HttpServletResponse) response;
+            http.setStatus(201);
+            http.setContentType("application/json");
+            http.getWriter().write("{\"orderId\":\"o" + handled.incrementAndGet() + "\"}");
+            http.getWriter().flush();
+        };
+    }
+
+    private MockHttpServletResponse post(final String key, final String body, final FilterChain chain) throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(key, body.getBytes(StandardCharsets.UTF_8)), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(final String key, final byte[] body) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/orders");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body);
+        return request;
+    }
+
+    private static String sha256(final byte[] body) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+    }
+}